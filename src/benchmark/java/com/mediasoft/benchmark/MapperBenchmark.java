@@ -0,0 +1,106 @@
+package com.mediasoft.benchmark;
+
+import com.mediasoft.dto.RestaurantRequestDTO;
+import com.mediasoft.dto.RestaurantResponseDTO;
+import com.mediasoft.dto.ReviewRequestDTO;
+import com.mediasoft.dto.ReviewResponseDTO;
+import com.mediasoft.dto.VisitorRequestDTO;
+import com.mediasoft.dto.VisitorResponseDTO;
+import com.mediasoft.entity.CuisineType;
+import com.mediasoft.entity.Restaurant;
+import com.mediasoft.entity.Review;
+import com.mediasoft.entity.Sex;
+import com.mediasoft.entity.Visitor;
+import com.mediasoft.mapper.RestaurantMapper;
+import com.mediasoft.mapper.RestaurantMapperImpl;
+import com.mediasoft.mapper.ReviewMapper;
+import com.mediasoft.mapper.ReviewMapperImpl;
+import com.mediasoft.mapper.VisitorMapper;
+import com.mediasoft.mapper.VisitorMapperImpl;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.math.BigDecimal;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MapperBenchmark {
+    private final RestaurantMapper restaurantMapper = new RestaurantMapperImpl();
+    private final ReviewMapper reviewMapper = new ReviewMapperImpl();
+    private final VisitorMapper visitorMapper = new VisitorMapperImpl();
+
+    private RestaurantRequestDTO restaurantRequest;
+    private Restaurant restaurant;
+    private ReviewRequestDTO reviewRequest;
+    private Review review;
+    private VisitorRequestDTO visitorRequest;
+    private Visitor visitor;
+
+    @Setup
+    public void setUp() {
+        restaurantRequest = new RestaurantRequestDTO("Restaurant", "description", "ITALIAN", BigDecimal.valueOf(1500));
+        restaurant = new Restaurant(1L);
+        restaurant.setName("Restaurant");
+        restaurant.setDescription("description");
+        restaurant.setCuisineType(CuisineType.ITALIAN);
+        restaurant.setAvgCheck(BigDecimal.valueOf(1500));
+        restaurant.setRating(new BigDecimal("4.5"));
+
+        reviewRequest = new ReviewRequestDTO(1L, 2L, 5, "comment");
+        review = reviewMapper.toReview(reviewRequest);
+
+        visitorRequest = new VisitorRequestDTO("Visitor", 30, "FEMALE");
+        visitor = new Visitor(2L);
+        visitor.setName("Visitor");
+        visitor.setAge(30);
+        visitor.setSex(Sex.FEMALE);
+    }
+
+    @Benchmark
+    public Restaurant restaurantFromRequest() {
+        return restaurantMapper.toRestaurant(restaurantRequest);
+    }
+
+    @Benchmark
+    public RestaurantResponseDTO restaurantToResponse() {
+        return restaurantMapper.toRestaurantResponseDTO(restaurant);
+    }
+
+    @Benchmark
+    public CuisineType cuisineTypeRoundTrip() {
+        return restaurantMapper.map(restaurantMapper.map(restaurant.getCuisineType()));
+    }
+
+    @Benchmark
+    public Review reviewFromRequest() {
+        return reviewMapper.toReview(reviewRequest);
+    }
+
+    @Benchmark
+    public ReviewResponseDTO reviewToResponse() {
+        return reviewMapper.toReviewResponseDTO(review);
+    }
+
+    @Benchmark
+    public Visitor visitorFromRequest() {
+        return visitorMapper.toVisitor(visitorRequest);
+    }
+
+    @Benchmark
+    public VisitorResponseDTO visitorToResponse() {
+        return visitorMapper.toVisitorResponseDTO(visitor);
+    }
+}
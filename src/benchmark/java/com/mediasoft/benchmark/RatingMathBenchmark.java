@@ -0,0 +1,58 @@
+package com.mediasoft.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+// Сравнение пересчёта среднего по всем отзывам (как было в updateRestaurantRating)
+// с вычислением по накопленным review_count/rating_sum, которое теперь делает SQL
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RatingMathBenchmark {
+    @Param({"10", "1000", "100000"})
+    private int reviewCount;
+
+    private int[] ratings;
+    private long ratingSum;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        ratings = new int[reviewCount];
+        for (int i = 0; i < reviewCount; i++) {
+            ratings[i] = 1 + random.nextInt(5);
+        }
+        ratingSum = Arrays.stream(ratings).asLongStream().sum();
+    }
+
+    @Benchmark
+    public BigDecimal averageOfAllReviews() {
+        double averageRating = Arrays.stream(ratings)
+                .average()
+                .orElse(0.0);
+        return BigDecimal.valueOf(averageRating).setScale(1, RoundingMode.HALF_UP);
+    }
+
+    @Benchmark
+    public BigDecimal averageFromAggregates() {
+        return BigDecimal.valueOf(ratingSum).divide(BigDecimal.valueOf(reviewCount), 1, RoundingMode.HALF_UP);
+    }
+}
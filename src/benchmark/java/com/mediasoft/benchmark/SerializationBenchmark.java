@@ -0,0 +1,110 @@
+package com.mediasoft.benchmark;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import com.fasterxml.jackson.dataformat.cbor.databind.CBORMapper;
+import com.fasterxml.jackson.dataformat.smile.databind.SmileMapper;
+import com.mediasoft.dto.CursorPageDTO;
+import com.mediasoft.dto.RestaurantResponseDTO;
+import com.mediasoft.entity.CuisineType;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPOutputStream;
+
+// Страница ресторанов (как GET /api/restaurants?size=100) в каждом формате: время записи, разбора
+// и записи со сжатием gzip. Размеры тела печатаются в лог при подготовке каждого формата
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SerializationBenchmark {
+    private static final String[] WORDS = ("домашняя кухня сезонное меню веранда живая музыка завтраки бизнес-ланч "
+            + "паста пицца дровяная печь вок лапша пельмени борщ стейки бургеры десерты вино крафтовое пиво детская комната "
+            + "доставка парковка вид на реку камин терраса фермерские продукты авторские коктейли").split(" ");
+
+    @Param({"JSON", "SMILE", "CBOR"})
+    private String format;
+
+    @Param({"100"})
+    private int pageSize;
+
+    private ObjectMapper objectMapper;
+    private CursorPageDTO<RestaurantResponseDTO> page;
+    private byte[] encoded;
+
+    @Setup
+    public void setUp() throws IOException {
+        objectMapper = switch (format) {
+            case "SMILE" -> new SmileMapper();
+            case "CBOR" -> new CBORMapper();
+            default -> new JsonMapper();
+        };
+        Random random = new Random(42);
+        CuisineType[] cuisineTypes = CuisineType.values();
+        List<RestaurantResponseDTO> items = new ArrayList<>(pageSize);
+        for (int i = 0; i < pageSize; i++) {
+            items.add(new RestaurantResponseDTO(1_000_000L + i, "Ресторан " + i,
+                    description(random),
+                    cuisineTypes[i % cuisineTypes.length].name(),
+                    BigDecimal.valueOf(500 + random.nextInt(5000), 2).movePointRight(2),
+                    BigDecimal.valueOf(10 + random.nextInt(41), 1),
+                    (long) random.nextInt(100)));
+        }
+        page = new CursorPageDTO<>(items, "MTAwMDA5OQ");
+        encoded = objectMapper.writeValueAsBytes(page);
+        System.out.printf("%n%s: %d bytes, %d bytes gzip%n", format, encoded.length, gzip(encoded).length);
+    }
+
+    @Benchmark
+    public byte[] serialize() throws IOException {
+        return objectMapper.writeValueAsBytes(page);
+    }
+
+    @Benchmark
+    public byte[] serializeGzip() throws IOException {
+        return gzip(objectMapper.writeValueAsBytes(page));
+    }
+
+    // DTO неизменяемые и без конструктора для Jackson, поэтому чтение меряется разбором в дерево
+    @Benchmark
+    public JsonNode parse() throws IOException {
+        return objectMapper.readTree(encoded);
+    }
+
+    // случайный набор слов, чтобы gzip не сжимал одинаковые описания до нуля
+    private static String description(Random random) {
+        StringBuilder description = new StringBuilder();
+        while (description.length() < 200) {
+            description.append(WORDS[random.nextInt(WORDS.length)]).append(' ');
+        }
+        return description.toString().trim();
+    }
+
+    private static byte[] gzip(byte[] bytes) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(bytes.length / 2);
+        try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+            gzip.write(bytes);
+        }
+        return out.toByteArray();
+    }
+}
@@ -0,0 +1,144 @@
+package com.mediasoft.benchmark;
+
+import com.mediasoft.AppApplication;
+import com.mediasoft.dto.CursorPageDTO;
+import com.mediasoft.dto.RestaurantRequestDTO;
+import com.mediasoft.dto.RestaurantResponseDTO;
+import com.mediasoft.dto.ReviewRequestDTO;
+import com.mediasoft.dto.VisitorRequestDTO;
+import com.mediasoft.entity.CuisineType;
+import com.mediasoft.service.RestaurantService;
+import com.mediasoft.service.ReviewService;
+import com.mediasoft.service.VisitorService;
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+// Вызовы сервисов на встроенном PostgreSQL; схема создаётся миграциями Flyway.
+// cacheSpec=maximumSize=0 фактически отключает кэш, чтобы чтение шло в базу
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ServiceBenchmark {
+    private static final int RESTAURANTS = 1000;
+    private static final int VISITORS = 200;
+    private static final int REVIEWS_PER_VISITOR = 50;
+
+    @Param({"maximumSize=10000", "maximumSize=0"})
+    private String cacheSpec;
+
+    private EmbeddedPostgres postgres;
+    private ConfigurableApplicationContext context;
+    private RestaurantService restaurantService;
+    private ReviewService reviewService;
+
+    private long firstRestaurantId;
+    private long freeVisitorId;
+
+    @Setup(Level.Trial)
+    public void start() throws IOException {
+        postgres = EmbeddedPostgres.start();
+        context = new SpringApplicationBuilder(AppApplication.class)
+                .web(WebApplicationType.NONE)
+                .run("--spring.datasource.url=" + postgres.getJdbcUrl("postgres", "postgres"),
+                        "--spring.datasource.username=postgres",
+                        "--spring.datasource.password=",
+                        "--spring.jpa.show-sql=false",
+                        "--debug=false",
+                        "--logging.level.root=WARN",
+                        "--app.cache.spec=" + cacheSpec);
+        restaurantService = context.getBean(RestaurantService.class);
+        reviewService = context.getBean(ReviewService.class);
+        seed(context.getBean(VisitorService.class));
+    }
+
+    private void seed(VisitorService visitorService) {
+        List<RestaurantRequestDTO> restaurants = new ArrayList<>();
+        CuisineType[] cuisineTypes = CuisineType.values();
+        for (int i = 0; i < RESTAURANTS; i++) {
+            restaurants.add(new RestaurantRequestDTO("restaurant " + i, "description",
+                    cuisineTypes[i % cuisineTypes.length].name(), BigDecimal.valueOf(500 + i)));
+        }
+        firstRestaurantId = restaurantService.createAll(restaurants).getItems().get(0).getId();
+
+        List<VisitorRequestDTO> visitors = new ArrayList<>();
+        for (int i = 0; i <= VISITORS; i++) {
+            visitors.add(new VisitorRequestDTO("visitor " + i, 20 + i % 50, i % 2 == 0 ? "MALE" : "FEMALE"));
+        }
+        List<Long> visitorIds = visitorService.createAll(visitors).getItems().stream()
+                .map(item -> item.getId())
+                .toList();
+        // последний посетитель без отзывов используется в createAndDeleteReview
+        freeVisitorId = visitorIds.get(VISITORS);
+
+        List<ReviewRequestDTO> reviews = new ArrayList<>();
+        for (int v = 0; v < VISITORS; v++) {
+            for (int r = 0; r < REVIEWS_PER_VISITOR; r++) {
+                long restaurantId = firstRestaurantId + (v * 7L + r * 13L) % RESTAURANTS;
+                reviews.add(new ReviewRequestDTO(restaurantId, visitorIds.get(v), 1 + (v + r) % 5, "comment"));
+            }
+        }
+        reviewService.createAll(reviews);
+    }
+
+    @TearDown(Level.Trial)
+    public void stop() throws IOException {
+        context.close();
+        postgres.close();
+    }
+
+    private long randomRestaurantId() {
+        return firstRestaurantId + ThreadLocalRandom.current().nextInt(RESTAURANTS);
+    }
+
+    @Benchmark
+    public RestaurantResponseDTO getRestaurantById() {
+        return restaurantService.getById(randomRestaurantId());
+    }
+
+    @Benchmark
+    public CursorPageDTO<RestaurantResponseDTO> getRestaurantsFirstPage() {
+        return restaurantService.getAll(null, 20);
+    }
+
+    @Benchmark
+    public CursorPageDTO<RestaurantResponseDTO> getRestaurantsWithMinRating() {
+        return restaurantService.getRestaurantsWithMinRating(new BigDecimal("4.5"), null, 20);
+    }
+
+    @Benchmark
+    public List<RestaurantResponseDTO> getLeaderboard() {
+        return restaurantService.getLeaderboard("ITALIAN", 10);
+    }
+
+    @Benchmark
+    public void createAndDeleteReview() {
+        long restaurantId = randomRestaurantId();
+        reviewService.create(new ReviewRequestDTO(restaurantId, freeVisitorId, 4, "benchmark"));
+        reviewService.delete(freeVisitorId, restaurantId);
+    }
+}
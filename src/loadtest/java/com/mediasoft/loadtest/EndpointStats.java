@@ -0,0 +1,36 @@
+package com.mediasoft.loadtest;
+
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+// Задержка считается от запланированного момента отправки, а не от фактического,
+// поэтому очередь перед сервером (coordinated omission) попадает в перцентили
+class EndpointStats {
+    private static final long MAX_LATENCY = TimeUnit.MINUTES.toNanos(1);
+
+    private final Histogram histogram = new ConcurrentHistogram(MAX_LATENCY, 3);
+    private final LongAdder errors = new LongAdder();
+
+    void record(long latencyNanos, boolean failed) {
+        histogram.recordValue(Math.min(latencyNanos, MAX_LATENCY));
+        if (failed) {
+            errors.increment();
+        }
+    }
+
+    Histogram histogram() {
+        return histogram;
+    }
+
+    long errors() {
+        return errors.sum();
+    }
+
+    void reset() {
+        histogram.reset();
+        errors.reset();
+    }
+}
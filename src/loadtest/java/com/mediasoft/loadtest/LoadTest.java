@@ -0,0 +1,249 @@
+package com.mediasoft.loadtest;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.mediasoft.AppApplication;
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import org.HdrHistogram.Histogram;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Supplier;
+
+// Нагрузочный тест REST API с фиксированной частотой запросов (открытая модель).
+// Без loadtest.target поднимает приложение на встроенном PostgreSQL. Для каждой частоты
+// из loadtest.rates пишет перцентили и пропускную способность по эндпоинтам в консоль,
+// report.json и HdrHistogram-файлы *.hgrm
+public class LoadTest {
+    private static final String DEFAULT_MIX = "restaurants.page:10,restaurants.get:20,restaurants.min-rating:5,"
+            + "restaurants.leaderboard:5,visitors.page:5,visitors.get:10,reviews.page:10,reviews.get:10,"
+            + "reviews.sorted-asc:5,reviews.sorted-desc:5,reviews.create:15";
+
+    private final HttpClient client;
+    private final Map<String, Supplier<HttpRequest>> requests;
+    private final String[] names;
+    private final int[] cumulativeWeights;
+    private final Map<String, EndpointStats> stats = new LinkedHashMap<>();
+    private final int maxInFlight;
+
+    private LoadTest(HttpClient client, Map<String, Supplier<HttpRequest>> requests, Map<String, Integer> mix, int maxInFlight) {
+        this.client = client;
+        this.requests = requests;
+        this.maxInFlight = maxInFlight;
+        names = mix.keySet().toArray(String[]::new);
+        cumulativeWeights = new int[names.length];
+        int total = 0;
+        for (int i = 0; i < names.length; i++) {
+            if (!requests.containsKey(names[i])) {
+                throw new IllegalArgumentException("Неизвестный эндпоинт в loadtest.mix: " + names[i] + ", доступны " + requests.keySet());
+            }
+            total += mix.get(names[i]);
+            cumulativeWeights[i] = total;
+            stats.put(names[i], new EndpointStats());
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        String target = System.getProperty("loadtest.target", "");
+        double[] rates = Arrays.stream(System.getProperty("loadtest.rates", "100,200,400").split(","))
+                .mapToDouble(rate -> Double.parseDouble(rate.trim()))
+                .toArray();
+        Duration duration = Duration.ofSeconds(Long.getLong("loadtest.duration", 30));
+        Duration warmup = Duration.ofSeconds(Long.getLong("loadtest.warmup", 10));
+        Map<String, Integer> mix = parseMix(System.getProperty("loadtest.mix", DEFAULT_MIX));
+        int maxInFlight = Integer.getInteger("loadtest.max-in-flight", 2000);
+        Path reportDir = Path.of(System.getProperty("loadtest.report-dir", "target/loadtest"));
+
+        EmbeddedPostgres postgres = null;
+        ConfigurableApplicationContext context = null;
+        if (target.isBlank()) {
+            postgres = EmbeddedPostgres.start();
+            context = new SpringApplicationBuilder(AppApplication.class)
+                    .run("--server.port=0",
+                            "--spring.datasource.url=" + postgres.getJdbcUrl("postgres", "postgres"),
+                            "--spring.datasource.username=postgres",
+                            "--spring.datasource.password=",
+                            "--spring.jpa.show-sql=false",
+                            "--debug=false",
+                            "--logging.level.root=WARN");
+            target = "http://localhost:" + ((WebServerApplicationContext) context).getWebServer().getPort();
+        }
+
+        try {
+            HttpClient client = HttpClient.newBuilder()
+                    .version(HttpClient.Version.HTTP_1_1)
+                    .connectTimeout(Duration.ofSeconds(5))
+                    .build();
+            Scenario scenario = new Scenario(URI.create(target), client);
+            scenario.seed(Integer.getInteger("loadtest.restaurants", 1000), Integer.getInteger("loadtest.visitors", 200),
+                    Integer.getInteger("loadtest.writers", 1000), Integer.getInteger("loadtest.reviews-per-visitor", 50));
+            LoadTest loadTest = new LoadTest(client, scenario.requests(), mix, maxInFlight);
+
+            System.out.printf("Прогрев %d с на %.0f req/s%n", warmup.toSeconds(), rates[0]);
+            loadTest.run(rates[0], warmup);
+
+            List<Map<String, Object>> steps = new ArrayList<>();
+            for (double rate : rates) {
+                Map<String, Object> step = loadTest.run(rate, duration);
+                loadTest.print(step);
+                loadTest.writeHistograms(reportDir.resolve("rate-" + (long) rate));
+                steps.add(step);
+            }
+
+            Map<String, Object> report = new LinkedHashMap<>();
+            report.put("target", target);
+            report.put("durationSeconds", duration.toSeconds());
+            report.put("warmupSeconds", warmup.toSeconds());
+            report.put("mix", mix);
+            report.put("steps", steps);
+            Files.createDirectories(reportDir);
+            new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT)
+                    .writeValue(reportDir.resolve("report.json").toFile(), report);
+            System.out.println("Отчёт: " + reportDir.resolve("report.json").toAbsolutePath());
+        } finally {
+            if (context != null) {
+                context.close();
+            }
+            if (postgres != null) {
+                postgres.close();
+            }
+        }
+    }
+
+    private Map<String, Object> run(double rate, Duration duration) throws InterruptedException {
+        stats.values().forEach(EndpointStats::reset);
+        AtomicInteger inFlight = new AtomicInteger();
+        LongAdder dropped = new LongAdder();
+        long start = System.nanoTime();
+        long end = start + duration.toNanos();
+        double period = TimeUnit.SECONDS.toNanos(1) / rate;
+
+        for (long i = 0; ; i++) {
+            long intended = start + (long) (i * period);
+            if (intended >= end) {
+                break;
+            }
+            long wait = intended - System.nanoTime();
+            if (wait > 0) {
+                LockSupport.parkNanos(wait);
+            }
+            String name = pick();
+            // при насыщении запросы не копятся бесконечно, а считаются отброшенными
+            if (inFlight.get() >= maxInFlight) {
+                dropped.increment();
+                continue;
+            }
+            inFlight.incrementAndGet();
+            client.sendAsync(requests.get(name).get(), HttpResponse.BodyHandlers.discarding())
+                    .whenComplete((response, error) -> {
+                        stats.get(name).record(System.nanoTime() - intended, error != null || response.statusCode() >= 400);
+                        inFlight.decrementAndGet();
+                    });
+        }
+        long drainDeadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(60);
+        while (inFlight.get() > 0 && System.nanoTime() < drainDeadline) {
+            Thread.sleep(10);
+        }
+        double elapsedSeconds = (System.nanoTime() - start) / 1e9;
+
+        Map<String, Object> endpoints = new LinkedHashMap<>();
+        Histogram total = new Histogram(3);
+        long errors = 0;
+        for (Map.Entry<String, EndpointStats> entry : stats.entrySet()) {
+            Histogram histogram = entry.getValue().histogram();
+            total.add(histogram);
+            errors += entry.getValue().errors();
+            endpoints.put(entry.getKey(), summary(histogram, entry.getValue().errors(), elapsedSeconds));
+        }
+        Map<String, Object> step = new LinkedHashMap<>();
+        step.put("targetRate", rate);
+        step.put("dropped", dropped.sum());
+        step.put("total", summary(total, errors, elapsedSeconds));
+        step.put("endpoints", endpoints);
+        return step;
+    }
+
+    private static Map<String, Object> summary(Histogram histogram, long errors, double elapsedSeconds) {
+        Map<String, Object> summary = new LinkedHashMap<>();
+        summary.put("count", histogram.getTotalCount());
+        summary.put("errors", errors);
+        summary.put("throughput", round(histogram.getTotalCount() / elapsedSeconds));
+        summary.put("p50Ms", millis(histogram.getValueAtPercentile(50)));
+        summary.put("p90Ms", millis(histogram.getValueAtPercentile(90)));
+        summary.put("p99Ms", millis(histogram.getValueAtPercentile(99)));
+        summary.put("p999Ms", millis(histogram.getValueAtPercentile(99.9)));
+        summary.put("maxMs", millis(histogram.getMaxValue()));
+        return summary;
+    }
+
+    @SuppressWarnings("unchecked")
+    private void print(Map<String, Object> step) {
+        System.out.printf("%n== %.0f req/s, отброшено %d ==%n", (double) step.get("targetRate"), (long) step.get("dropped"));
+        System.out.printf("%-24s %8s %7s %9s %9s %9s %9s %9s %9s%n",
+                "endpoint", "count", "errors", "req/s", "p50 ms", "p90 ms", "p99 ms", "p99.9 ms", "max ms");
+        Map<String, Object> rows = new LinkedHashMap<>((Map<String, Object>) step.get("endpoints"));
+        rows.put("total", step.get("total"));
+        rows.forEach((name, value) -> {
+            Map<String, Object> row = (Map<String, Object>) value;
+            System.out.printf("%-24s %8d %7d %9.1f %9.2f %9.2f %9.2f %9.2f %9.2f%n", name,
+                    row.get("count"), row.get("errors"), row.get("throughput"), row.get("p50Ms"),
+                    row.get("p90Ms"), row.get("p99Ms"), row.get("p999Ms"), row.get("maxMs"));
+        });
+    }
+
+    private void writeHistograms(Path dir) throws IOException {
+        Files.createDirectories(dir);
+        for (Map.Entry<String, EndpointStats> entry : stats.entrySet()) {
+            try (PrintStream out = new PrintStream(Files.newOutputStream(dir.resolve(entry.getKey() + ".hgrm")))) {
+                entry.getValue().histogram().outputPercentileDistribution(out, 1e6);
+            }
+        }
+    }
+
+    private String pick() {
+        int value = ThreadLocalRandom.current().nextInt(cumulativeWeights[cumulativeWeights.length - 1]);
+        for (int i = 0; i < cumulativeWeights.length; i++) {
+            if (value < cumulativeWeights[i]) {
+                return names[i];
+            }
+        }
+        return names[names.length - 1];
+    }
+
+    private static Map<String, Integer> parseMix(String mix) {
+        Map<String, Integer> weights = new LinkedHashMap<>();
+        for (String part : mix.split(",")) {
+            String[] nameAndWeight = part.trim().split(":");
+            weights.put(nameAndWeight[0], Integer.parseInt(nameAndWeight[1]));
+        }
+        return weights;
+    }
+
+    private static double millis(long nanos) {
+        return round(nanos / 1e6);
+    }
+
+    private static double round(double value) {
+        return Math.round(value * 100) / 100.0;
+    }
+}
@@ -0,0 +1,140 @@
+package com.mediasoft.loadtest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+// Набор данных и запросы нагрузки. Данные заливаются через bulk-эндпоинты,
+// отдельные посетители-«писатели» без отзывов дают уникальные пары для POST /api/reviews
+class Scenario {
+    private static final String[] CUISINE_TYPES = {"ITALIAN", "CHINESE", "RUSSIAN"};
+
+    private final URI target;
+    private final HttpClient client;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private final List<Long> restaurantIds = new ArrayList<>();
+    private final List<Long> readerIds = new ArrayList<>();
+    private final List<Long> writerIds = new ArrayList<>();
+    private final List<long[]> reviewKeys = new ArrayList<>();
+    private final AtomicLong nextWrite = new AtomicLong();
+
+    Scenario(URI target, HttpClient client) {
+        this.target = target;
+        this.client = client;
+    }
+
+    void seed(int restaurants, int readers, int writers, int reviewsPerReader) throws IOException, InterruptedException {
+        List<Map<String, Object>> restaurantRequests = new ArrayList<>();
+        for (int i = 0; i < restaurants; i++) {
+            restaurantRequests.add(Map.of("name", "load restaurant " + i, "description", "load test",
+                    "cuisineType", CUISINE_TYPES[i % CUISINE_TYPES.length], "avgCheck", 500 + i % 3000));
+        }
+        restaurantIds.addAll(createdIds("/api/restaurants/bulk", restaurantRequests));
+
+        List<Map<String, Object>> visitorRequests = new ArrayList<>();
+        for (int i = 0; i < readers + writers; i++) {
+            visitorRequests.add(Map.of("name", "load visitor " + i, "age", 18 + i % 60, "sex", i % 2 == 0 ? "MALE" : "FEMALE"));
+        }
+        List<Long> visitorIds = createdIds("/api/visitors/bulk", visitorRequests);
+        readerIds.addAll(visitorIds.subList(0, readers));
+        writerIds.addAll(visitorIds.subList(readers, visitorIds.size()));
+
+        List<Map<String, Object>> reviewRequests = new ArrayList<>();
+        // у одного посетителя рестораны идут подряд от смещения, поэтому пары не повторяются
+        int perReader = Math.min(reviewsPerReader, restaurants);
+        for (int v = 0; v < readers; v++) {
+            for (int r = 0; r < perReader; r++) {
+                long restaurantId = restaurantIds.get((v * 31 + r) % restaurants);
+                long visitorId = readerIds.get(v);
+                reviewKeys.add(new long[]{restaurantId, visitorId});
+                reviewRequests.add(Map.of("restaurantId", restaurantId, "visitorId", visitorId,
+                        "rating", 1 + (v + r) % 5, "comment", "load test"));
+            }
+        }
+        for (int from = 0; from < reviewRequests.size(); from += 5000) {
+            post("/api/reviews/bulk", reviewRequests.subList(from, Math.min(from + 5000, reviewRequests.size())));
+        }
+    }
+
+    Map<String, Supplier<HttpRequest>> requests() {
+        Map<String, Supplier<HttpRequest>> requests = new LinkedHashMap<>();
+        requests.put("restaurants.page", () -> get("/api/restaurants?size=20"));
+        requests.put("restaurants.get", () -> get("/api/restaurants/" + random(restaurantIds)));
+        requests.put("restaurants.min-rating", () -> get("/api/restaurants/min-rating/jpql?rating=4.5"));
+        requests.put("restaurants.leaderboard", () -> get("/api/restaurants/leaderboard/"
+                + CUISINE_TYPES[ThreadLocalRandom.current().nextInt(CUISINE_TYPES.length)] + "?limit=10"));
+        requests.put("visitors.page", () -> get("/api/visitors?size=20"));
+        requests.put("visitors.get", () -> get("/api/visitors/" + random(readerIds)));
+        requests.put("reviews.page", () -> get("/api/reviews?size=20"));
+        requests.put("reviews.get", () -> {
+            long[] key = reviewKeys.get(ThreadLocalRandom.current().nextInt(reviewKeys.size()));
+            return get("/api/reviews/" + key[0] + "/" + key[1]);
+        });
+        requests.put("reviews.sorted-asc", () -> get("/api/reviews/sorted/asc?size=20&page=" + ThreadLocalRandom.current().nextInt(50)));
+        requests.put("reviews.sorted-desc", () -> get("/api/reviews/sorted/desc?size=20&page=" + ThreadLocalRandom.current().nextInt(50)));
+        requests.put("reviews.create", this::createReview);
+        return requests;
+    }
+
+    private HttpRequest createReview() {
+        long write = nextWrite.getAndIncrement();
+        long visitorId = writerIds.get((int) (write / restaurantIds.size() % writerIds.size()));
+        long restaurantId = restaurantIds.get((int) (write % restaurantIds.size()));
+        return HttpRequest.newBuilder(target.resolve("/api/reviews"))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(toJson(Map.of("restaurantId", restaurantId,
+                        "visitorId", visitorId, "rating", 1 + (int) (write % 5), "comment", "load test"))))
+                .build();
+    }
+
+    private HttpRequest get(String path) {
+        return HttpRequest.newBuilder(target.resolve(path)).GET().build();
+    }
+
+    private List<Long> createdIds(String path, List<?> body) throws IOException, InterruptedException {
+        List<Long> ids = new ArrayList<>();
+        for (JsonNode item : post(path, body).get("items")) {
+            if (item.get("created").asBoolean()) {
+                ids.add(item.get("id").asLong());
+            }
+        }
+        return ids;
+    }
+
+    private JsonNode post(String path, List<?> body) throws IOException, InterruptedException {
+        HttpRequest request = HttpRequest.newBuilder(target.resolve(path))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(toJson(body)))
+                .build();
+        HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
+        if (response.statusCode() != 200) {
+            throw new IllegalStateException(path + " -> " + response.statusCode() + ": " + response.body());
+        }
+        return objectMapper.readTree(response.body());
+    }
+
+    private String toJson(Object value) {
+        try {
+            return objectMapper.writeValueAsString(value);
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static long random(List<Long> ids) {
+        return ids.get(ThreadLocalRandom.current().nextInt(ids.size()));
+    }
+}
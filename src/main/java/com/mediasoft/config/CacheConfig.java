@@ -0,0 +1,24 @@
+package com.mediasoft.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.cache.caffeine.CaffeineCacheManager;
+import org.springframework.cache.transaction.TransactionAwareCacheManagerProxy;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+@EnableCaching
+public class CacheConfig {
+    public static final String RESTAURANTS = "restaurants";
+    public static final String VISITORS = "visitors";
+
+    // вытеснение из кэша откладывается до коммита, чтобы параллельное чтение не закэшировало старые данные
+    @Bean
+    public CacheManager cacheManager(@Value("${app.cache.spec}") String spec) {
+        CaffeineCacheManager caffeineCacheManager = new CaffeineCacheManager(RESTAURANTS, VISITORS);
+        caffeineCacheManager.setCacheSpecification(spec);
+        return new TransactionAwareCacheManagerProxy(caffeineCacheManager);
+    }
+}
@@ -0,0 +1,23 @@
+package com.mediasoft.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+@Configuration
+public class ExportConfig {
+    public static final String EXPORT_EXECUTOR = "exportExecutor";
+
+    // общий пул потоков выгрузок без очереди: число одновременно занятых потоков ограничивают
+    // разрешения на соединения в ExportService, поэтому потока на задачу всегда хватает
+    @Bean(EXPORT_EXECUTOR)
+    public ThreadPoolTaskExecutor exportExecutor(@Value("${app.export.max-connections}") int maxConnections) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(maxConnections);
+        executor.setMaxPoolSize(maxConnections);
+        executor.setQueueCapacity(0);
+        executor.setThreadNamePrefix("export-");
+        return executor;
+    }
+}
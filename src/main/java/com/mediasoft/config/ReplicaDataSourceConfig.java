@@ -0,0 +1,64 @@
+package com.mediasoft.config;
+
+import com.mediasoft.datasource.ReplicaSelector;
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.metrics.micrometer.MicrometerMetricsTrackerFactory;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+// Включается, когда заданы реплики. Соединение берётся лениво, уже после того как транзакция
+// помечена read-only: такие транзакции читают с реплик, остальные работают с основным источником.
+// Пулы не регистрируются бинами, иначе каждый обернула бы статистика SQL и запросы считались бы дважды
+@Configuration
+@ConditionalOnExpression("!'${app.datasource.replica-urls:}'.isBlank()")
+public class ReplicaDataSourceConfig {
+    // недоступная реплика не должна надолго задерживать чтение
+    private static final long REPLICA_CONNECTION_TIMEOUT_MS = 1000;
+
+    @Bean
+    public ReplicaSelector replicaSelector(DataSourceProperties properties,
+                                           Environment environment,
+                                           MeterRegistry meterRegistry,
+                                           @Value("${app.datasource.replica-urls}") List<String> replicaUrls,
+                                           @Value("${app.datasource.read-your-writes-window}") Duration readYourWritesWindow) {
+        HikariDataSource primary = pool(properties, environment, meterRegistry, "primary", properties.determineUrl());
+        List<HikariDataSource> replicas = new ArrayList<>();
+        for (int i = 0; i < replicaUrls.size(); i++) {
+            HikariDataSource replica = pool(properties, environment, meterRegistry, "replica-" + (i + 1), replicaUrls.get(i));
+            replica.setReadOnly(true);
+            replica.setConnectionTimeout(REPLICA_CONNECTION_TIMEOUT_MS);
+            replica.setInitializationFailTimeout(-1);
+            replicas.add(replica);
+        }
+        return new ReplicaSelector(primary, replicas, readYourWritesWindow, meterRegistry);
+    }
+
+    @Bean
+    public DataSource dataSource(ReplicaSelector replicaSelector) {
+        LazyConnectionDataSourceProxy dataSource = new LazyConnectionDataSourceProxy(replicaSelector.primaryDataSource());
+        dataSource.setReadOnlyDataSource(replicaSelector.readOnlyDataSource());
+        return dataSource;
+    }
+
+    private static HikariDataSource pool(DataSourceProperties properties, Environment environment,
+                                         MeterRegistry meterRegistry, String name, String url) {
+        HikariDataSource pool = properties.initializeDataSourceBuilder().type(HikariDataSource.class).url(url).build();
+        Binder.get(environment).bind("spring.datasource.hikari", Bindable.ofInstance(pool));
+        pool.setPoolName(name);
+        pool.setMetricsTrackerFactory(new MicrometerMetricsTrackerFactory(meterRegistry));
+        return pool;
+    }
+}
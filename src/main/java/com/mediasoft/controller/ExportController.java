@@ -0,0 +1,40 @@
+package com.mediasoft.controller;
+
+import com.mediasoft.export.ExportFormat;
+import com.mediasoft.service.ExportService;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.web.bind.annotation.*;
+
+import java.io.IOException;
+
+@RestController
+@RequestMapping("/api/export")
+@RequiredArgsConstructor
+public class ExportController {
+    private final ExportService exportService;
+
+    @GetMapping("/reviews")
+    public void exportReviews(@RequestParam(defaultValue = "NDJSON") ExportFormat format,
+                              @RequestParam(defaultValue = "1") int workers,
+                              HttpServletResponse response) throws IOException {
+        prepare(response, format, "reviews");
+        exportService.exportReviews(format, workers, response.getOutputStream());
+    }
+
+    @GetMapping("/restaurants")
+    public void exportRestaurants(@RequestParam(defaultValue = "NDJSON") ExportFormat format,
+                                  @RequestParam(defaultValue = "1") int workers,
+                                  HttpServletResponse response) throws IOException {
+        prepare(response, format, "restaurants");
+        exportService.exportRestaurants(format, workers, response.getOutputStream());
+    }
+
+    private static void prepare(HttpServletResponse response, ExportFormat format, String name) {
+        response.setContentType(format.getMediaType().toString());
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION,
+                ContentDisposition.attachment().filename(name + "." + format.getExtension()).build().toString());
+    }
+}
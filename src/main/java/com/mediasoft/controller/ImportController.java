@@ -0,0 +1,34 @@
+package com.mediasoft.controller;
+
+import com.mediasoft.dto.ImportResultDTO;
+import com.mediasoft.service.ImportService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.web.bind.annotation.*;
+
+import java.io.InputStream;
+
+// CSV с заголовком, столбцы в фиксированном порядке:
+// visitors: id,name,age,sex; restaurants: id,name,description,cuisineType,avgCheck; reviews: restaurantId,visitorId,rating,comment
+@RestController
+@RequestMapping("/api/import")
+@RequiredArgsConstructor
+public class ImportController {
+    private static final String TEXT_CSV = "text/csv";
+
+    private final ImportService importService;
+
+    @PostMapping(value = "/visitors", consumes = TEXT_CSV)
+    public ImportResultDTO importVisitors(InputStream body) {
+        return importService.importVisitors(body);
+    }
+
+    @PostMapping(value = "/restaurants", consumes = TEXT_CSV)
+    public ImportResultDTO importRestaurants(InputStream body) {
+        return importService.importRestaurants(body);
+    }
+
+    @PostMapping(value = "/reviews", consumes = TEXT_CSV)
+    public ImportResultDTO importReviews(InputStream body) {
+        return importService.importReviews(body);
+    }
+}
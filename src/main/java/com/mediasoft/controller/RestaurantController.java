@@ -1,13 +1,25 @@
 package com.mediasoft.controller;
 
+import com.mediasoft.dto.BulkResultDTO;
+import com.mediasoft.dto.CursorPageDTO;
+import com.mediasoft.dto.RatingDistributionDTO;
+import com.mediasoft.dto.RestaurantFacetsDTO;
 import com.mediasoft.dto.RestaurantRequestDTO;
 import com.mediasoft.dto.RestaurantResponseDTO;
 import com.mediasoft.dto.ReviewResponseDTO;
+import com.mediasoft.event.ChangeMarkers;
 import com.mediasoft.service.RestaurantService;
+import com.mediasoft.service.ReviewService;
+import com.mediasoft.util.ETags;
+import com.mediasoft.util.NdjsonReader;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.MediaType;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
+import java.io.InputStream;
+import java.math.BigDecimal;
 import java.util.List;
 
 @RestController
@@ -15,21 +27,65 @@ import java.util.List;
 @RequiredArgsConstructor
 public class RestaurantController {
     private final RestaurantService restaurantService;
+    private final ReviewService reviewService;
+    private final NdjsonReader ndjsonReader;
+    private final ChangeMarkers changeMarkers;
 
     @PostMapping
     public RestaurantResponseDTO create(@Valid @RequestBody RestaurantRequestDTO restaurantRequestDTO) {
         return restaurantService.create(restaurantRequestDTO);
     }
+
+    @PostMapping(value = "/bulk", consumes = MediaType.APPLICATION_JSON_VALUE)
+    public BulkResultDTO createBulk(@RequestBody List<RestaurantRequestDTO> restaurantRequestDTOs) {
+        return restaurantService.createAll(restaurantRequestDTOs);
+    }
+
+    @PostMapping(value = "/bulk", consumes = MediaType.APPLICATION_NDJSON_VALUE)
+    public BulkResultDTO createBulkNdjson(InputStream body) {
+        return restaurantService.createAll(ndjsonReader.read(body, RestaurantRequestDTO.class));
+    }
     // TODO: перенести базу из H2 в psql
 
     @GetMapping
-    public List<RestaurantResponseDTO> getAll() {
-        return restaurantService.getAll();
+    public CursorPageDTO<RestaurantResponseDTO> getAll(@RequestParam(required = false) String cursor,
+                                                       @RequestParam(defaultValue = "20") int size,
+                                                       WebRequest request) {
+        if (ETags.pageNotModified(request, "restaurants", changeMarkers.current(ChangeMarkers.Resource.RESTAURANTS), cursor, size)) {
+            return null;
+        }
+        return restaurantService.getAll(cursor, size);
     }
 
     @GetMapping("/{id}")
-    public RestaurantResponseDTO getById(@PathVariable Long id) {
-        return restaurantService.getById(id);
+    public RestaurantResponseDTO getById(@PathVariable Long id, WebRequest request) {
+        RestaurantResponseDTO restaurant = restaurantService.getById(id);
+        if (restaurant != null && ETags.notModified(request, "restaurant", id, restaurant.getVersion())) {
+            return null;
+        }
+        return restaurant;
+    }
+
+    @GetMapping("/{id}/rating-distribution")
+    public RatingDistributionDTO getRatingDistribution(@PathVariable Long id, WebRequest request) {
+        RatingDistributionDTO distribution = restaurantService.getRatingDistribution(id);
+        if (distribution != null && ETags.notModified(request, "rating-distribution", id, distribution.getVersion())) {
+            return null;
+        }
+        return distribution;
+    }
+
+    @GetMapping("/{id}/reviews")
+    public CursorPageDTO<ReviewResponseDTO> getReviews(@PathVariable Long id,
+                                                      @RequestParam(defaultValue = "desc") String sort,
+                                                      @RequestParam(required = false) String cursor,
+                                                      @RequestParam(defaultValue = "20") int size,
+                                                      WebRequest request) {
+        if (ETags.pageNotModified(request, "restaurant-reviews", changeMarkers.current(ChangeMarkers.Resource.REVIEWS),
+                id, sort, cursor, size)) {
+            return null;
+        }
+        return reviewService.getByRestaurant(id, sort, cursor, size);
     }
 
     @DeleteMapping("/{id}")
@@ -42,13 +98,40 @@ public class RestaurantController {
         return restaurantService.update(id, restaurantRequestDTO);
     }
 
-    @GetMapping("/min-rating/convention")
-    public List<RestaurantResponseDTO> getRestaurantsWithMinRating(@RequestParam Double rating) {
-        return restaurantService.getRestaurantsWithMinRating(rating);
+    @GetMapping("/min-rating")
+    public CursorPageDTO<RestaurantResponseDTO> getRestaurantsWithMinRating(@RequestParam BigDecimal rating,
+                                                                            @RequestParam(required = false) String cursor,
+                                                                            @RequestParam(defaultValue = "20") int size,
+                                                                            WebRequest request) {
+        if (ETags.pageNotModified(request, "min-rating", changeMarkers.current(ChangeMarkers.Resource.RESTAURANTS),
+                rating.toPlainString(), cursor, size)) {
+            return null;
+        }
+        return restaurantService.getRestaurantsWithMinRating(rating, cursor, size);
+    }
+
+    // прежние адреса отдают массив, как раньше, но ограниченной длины; выборка та же, из индекса без запросов к базе
+    @GetMapping({"/min-rating/convention", "/min-rating/jpql"})
+    public List<RestaurantResponseDTO> getAllRestaurantsWithMinRating(@RequestParam BigDecimal rating, WebRequest request) {
+        if (ETags.pageNotModified(request, "min-rating-all", changeMarkers.current(ChangeMarkers.Resource.RESTAURANTS),
+                rating.toPlainString())) {
+            return null;
+        }
+        return restaurantService.getAllRestaurantsWithMinRating(rating);
+    }
+
+    @GetMapping("/leaderboard/{cuisineType}")
+    public List<RestaurantResponseDTO> getLeaderboard(@PathVariable String cuisineType,
+                                                      @RequestParam(defaultValue = "10") int limit) {
+        return restaurantService.getLeaderboard(cuisineType, limit);
     }
 
-    @GetMapping("/min-rating/jpql")
-    public List<RestaurantResponseDTO> getRestaurantsWithMinRatingJPQL(@RequestParam Double rating) {
-        return restaurantService.getRestaurantsWithMinRatingJPQL(rating);
+    @GetMapping("/facets")
+    public RestaurantFacetsDTO filter(@RequestParam(defaultValue = "") List<String> cuisineType,
+                                      @RequestParam(required = false) BigDecimal minAvgCheck,
+                                      @RequestParam(required = false) BigDecimal maxAvgCheck,
+                                      @RequestParam(required = false) BigDecimal minRating,
+                                      @RequestParam(defaultValue = "20") int limit) {
+        return restaurantService.filter(cuisineType, minAvgCheck, maxAvgCheck, minRating, limit);
     }
 }
@@ -1,36 +1,69 @@
 package com.mediasoft.controller;
 
+import com.mediasoft.dto.BulkResultDTO;
+import com.mediasoft.dto.CursorPageDTO;
 import com.mediasoft.dto.ReviewRequestDTO;
 import com.mediasoft.dto.ReviewResponseDTO;
 import com.mediasoft.dto.ReviewUpdateRequestDTO;
+import com.mediasoft.event.ChangeMarkers;
 import com.mediasoft.service.ReviewService;
+import com.mediasoft.util.ETags;
+import com.mediasoft.util.NdjsonReader;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.http.MediaType;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
+import java.io.InputStream;
 import java.util.List;
+import java.util.Objects;
 
 @RestController
 @RequestMapping("/api/reviews")
 @RequiredArgsConstructor
 public class ReviewController {
     private final ReviewService reviewService;
+    private final NdjsonReader ndjsonReader;
+    private final ChangeMarkers changeMarkers;
 
     @PostMapping
     public ReviewResponseDTO create(@Valid @RequestBody ReviewRequestDTO reviewRequestDTO) {
         return reviewService.create(reviewRequestDTO);
     }
 
+    @PostMapping(value = "/bulk", consumes = MediaType.APPLICATION_JSON_VALUE)
+    public BulkResultDTO createBulk(@RequestBody List<ReviewRequestDTO> reviewRequestDTOs) {
+        return reviewService.createAll(reviewRequestDTOs);
+    }
+
+    @PostMapping(value = "/bulk", consumes = MediaType.APPLICATION_NDJSON_VALUE)
+    public BulkResultDTO createBulkNdjson(InputStream body) {
+        return reviewService.createAll(ndjsonReader.read(body, ReviewRequestDTO.class));
+    }
+
     @GetMapping("/{restaurantId}/{visitorId}")
-    public ReviewResponseDTO getById(@PathVariable Long visitorId, @PathVariable Long restaurantId) {
-        return reviewService.getById(visitorId, restaurantId);
+    public ReviewResponseDTO getById(@PathVariable Long visitorId, @PathVariable Long restaurantId, WebRequest request) {
+        ReviewResponseDTO review = reviewService.getById(visitorId, restaurantId);
+        // ключ отзыва освобождается при удалении, и версия нового отзыва снова начинается с нуля,
+        // поэтому в тег входит ещё и хэш содержимого
+        if (review != null && ETags.notModified(request, "review", restaurantId, visitorId, review.getVersion(),
+                Integer.toHexString(Objects.hash(review.getRating(), review.getComment())))) {
+            return null;
+        }
+        return review;
     }
 
     @GetMapping
-    public List<ReviewResponseDTO> getAll() {
-        return reviewService.getAll();
+    public CursorPageDTO<ReviewResponseDTO> getAll(@RequestParam(required = false) String cursor,
+                                                   @RequestParam(defaultValue = "20") int size,
+                                                   WebRequest request) {
+        if (ETags.pageNotModified(request, "reviews", changeMarkers.current(ChangeMarkers.Resource.REVIEWS), cursor, size)) {
+            return null;
+        }
+        return reviewService.getAll(cursor, size);
     }
 
     @PutMapping("/{restaurantId}/{visitorId}")
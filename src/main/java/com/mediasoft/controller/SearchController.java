@@ -0,0 +1,30 @@
+package com.mediasoft.controller;
+
+import com.mediasoft.dto.CursorPageDTO;
+import com.mediasoft.dto.RestaurantResponseDTO;
+import com.mediasoft.dto.ReviewResponseDTO;
+import com.mediasoft.service.SearchService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.web.bind.annotation.*;
+
+@RestController
+@RequestMapping("/api/search")
+@RequiredArgsConstructor
+public class SearchController {
+    private final SearchService searchService;
+
+    @GetMapping("/restaurants")
+    public CursorPageDTO<RestaurantResponseDTO> searchRestaurants(@RequestParam String q,
+                                                                 @RequestParam(required = false) String cursor,
+                                                                 @RequestParam(defaultValue = "20") int size) {
+        return searchService.searchRestaurants(q, cursor, size);
+    }
+
+    @GetMapping("/reviews")
+    public CursorPageDTO<ReviewResponseDTO> searchReviews(@RequestParam String q,
+                                                         @RequestParam(required = false) Long restaurantId,
+                                                         @RequestParam(required = false) String cursor,
+                                                         @RequestParam(defaultValue = "20") int size) {
+        return searchService.searchReviews(q, restaurantId, cursor, size);
+    }
+}
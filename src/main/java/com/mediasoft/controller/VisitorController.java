@@ -1,12 +1,22 @@
 package com.mediasoft.controller;
 
+import com.mediasoft.dto.BulkResultDTO;
+import com.mediasoft.dto.CursorPageDTO;
+import com.mediasoft.dto.ReviewResponseDTO;
 import com.mediasoft.dto.VisitorRequestDTO;
 import com.mediasoft.dto.VisitorResponseDTO;
+import com.mediasoft.event.ChangeMarkers;
+import com.mediasoft.service.ReviewService;
 import com.mediasoft.service.VisitorService;
+import com.mediasoft.util.ETags;
+import com.mediasoft.util.NdjsonReader;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.MediaType;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
+import java.io.InputStream;
 import java.util.List;
 
 @RestController
@@ -14,20 +24,55 @@ import java.util.List;
 @RequiredArgsConstructor
 public class VisitorController {
     private final VisitorService visitorService;
+    private final ReviewService reviewService;
+    private final NdjsonReader ndjsonReader;
+    private final ChangeMarkers changeMarkers;
 
     @PostMapping
     public VisitorResponseDTO createVisitor(@Valid @RequestBody VisitorRequestDTO visitorRequestDTO) {
         return visitorService.create(visitorRequestDTO);
     }
 
+    @PostMapping(value = "/bulk", consumes = MediaType.APPLICATION_JSON_VALUE)
+    public BulkResultDTO createBulk(@RequestBody List<VisitorRequestDTO> visitorRequestDTOs) {
+        return visitorService.createAll(visitorRequestDTOs);
+    }
+
+    @PostMapping(value = "/bulk", consumes = MediaType.APPLICATION_NDJSON_VALUE)
+    public BulkResultDTO createBulkNdjson(InputStream body) {
+        return visitorService.createAll(ndjsonReader.read(body, VisitorRequestDTO.class));
+    }
+
     @GetMapping
-    public List<VisitorResponseDTO> getAllVisitors() {
-        return visitorService.getAll();
+    public CursorPageDTO<VisitorResponseDTO> getAllVisitors(@RequestParam(required = false) String cursor,
+                                                           @RequestParam(defaultValue = "20") int size,
+                                                           WebRequest request) {
+        if (ETags.pageNotModified(request, "visitors", changeMarkers.current(ChangeMarkers.Resource.VISITORS), cursor, size)) {
+            return null;
+        }
+        return visitorService.getAll(cursor, size);
     }
 
     @GetMapping("/{id}")
-    public VisitorResponseDTO getVisitorById(@PathVariable Long id) {
-        return visitorService.getById(id);
+    public VisitorResponseDTO getVisitorById(@PathVariable Long id, WebRequest request) {
+        VisitorResponseDTO visitor = visitorService.getById(id);
+        if (visitor != null && ETags.notModified(request, "visitor", id, visitor.getVersion())) {
+            return null;
+        }
+        return visitor;
+    }
+
+    @GetMapping("/{id}/reviews")
+    public CursorPageDTO<ReviewResponseDTO> getReviews(@PathVariable Long id,
+                                                      @RequestParam(defaultValue = "desc") String sort,
+                                                      @RequestParam(required = false) String cursor,
+                                                      @RequestParam(defaultValue = "20") int size,
+                                                      WebRequest request) {
+        if (ETags.pageNotModified(request, "visitor-reviews", changeMarkers.current(ChangeMarkers.Resource.REVIEWS),
+                id, sort, cursor, size)) {
+            return null;
+        }
+        return reviewService.getByVisitor(id, sort, cursor, size);
     }
 
     @DeleteMapping("/{id}")
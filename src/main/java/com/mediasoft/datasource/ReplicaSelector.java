@@ -0,0 +1,154 @@
+package com.mediasoft.datasource;
+
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.datasource.AbstractDataSource;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Источник соединений для read-only транзакций: реплики выбираются по кругу среди здоровых.
+// Реплика, не выдавшая соединение, исключается до следующей успешной проверки;
+// если здоровых реплик нет, чтение уходит на основной источник. В течение окна после коммита записи
+// чтение тоже идёт на основной источник: отстающая реплика не вернёт кэшам только что вытесненные данные
+@Slf4j
+public class ReplicaSelector implements AutoCloseable {
+    private static final int VALIDATION_TIMEOUT_SECONDS = 1;
+
+    private final HikariDataSource primary;
+    private final List<Replica> replicas;
+    private final Counter primaryFallbacks;
+    private final long readYourWritesWindowNanos;
+    private final AtomicInteger next = new AtomicInteger();
+    private volatile long lastWriteNanos;
+
+    public ReplicaSelector(HikariDataSource primary, List<HikariDataSource> replicas, Duration readYourWritesWindow,
+                           MeterRegistry meterRegistry) {
+        this.primary = primary;
+        this.replicas = replicas.stream().map(pool -> new Replica(pool, meterRegistry)).toList();
+        this.readYourWritesWindowNanos = readYourWritesWindow.toNanos();
+        lastWriteNanos = System.nanoTime() - readYourWritesWindowNanos;
+        primaryFallbacks = routedCounter(primary.getPoolName(), meterRegistry);
+    }
+
+    // основной источник: пишущая транзакция после коммита открывает окно чтения с основного источника
+    public DataSource primaryDataSource() {
+        return new DelegatingDataSource(primary) {
+            @Override
+            public Connection getConnection() throws SQLException {
+                Connection connection = super.getConnection();
+                if (TransactionSynchronizationManager.isSynchronizationActive()
+                        && !TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+                    TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                        @Override
+                        public void afterCommit() {
+                            lastWriteNanos = System.nanoTime();
+                        }
+                    });
+                }
+                return connection;
+            }
+        };
+    }
+
+    public DataSource readOnlyDataSource() {
+        return new AbstractDataSource() {
+            @Override
+            public Connection getConnection() throws SQLException {
+                return ReplicaSelector.this.getConnection();
+            }
+
+            @Override
+            public Connection getConnection(String username, String password) throws SQLException {
+                return ReplicaSelector.this.getConnection();
+            }
+        };
+    }
+
+    public Connection getConnection() throws SQLException {
+        if (System.nanoTime() - lastWriteNanos < readYourWritesWindowNanos) {
+            primaryFallbacks.increment();
+            return primary.getConnection();
+        }
+        int start = Math.floorMod(next.getAndIncrement(), replicas.size());
+        for (int i = 0; i < replicas.size(); i++) {
+            Replica replica = replicas.get((start + i) % replicas.size());
+            if (!replica.healthy) {
+                continue;
+            }
+            try {
+                Connection connection = replica.pool.getConnection();
+                replica.routed.increment();
+                return connection;
+            } catch (SQLException e) {
+                replica.markDown(e);
+            }
+        }
+        primaryFallbacks.increment();
+        return primary.getConnection();
+    }
+
+    @Scheduled(fixedDelayString = "${app.datasource.replica-health-interval}", timeUnit = TimeUnit.MILLISECONDS)
+    public void checkHealth() {
+        for (Replica replica : replicas) {
+            try (Connection connection = replica.pool.getConnection()) {
+                if (!connection.isValid(VALIDATION_TIMEOUT_SECONDS)) {
+                    throw new SQLException("Соединение не прошло проверку");
+                }
+                if (!replica.healthy) {
+                    log.info("Реплика {} снова доступна", replica.pool.getPoolName());
+                    replica.healthy = true;
+                }
+            } catch (SQLException e) {
+                replica.markDown(e);
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        replicas.forEach(replica -> replica.pool.close());
+        primary.close();
+    }
+
+    private static Counter routedCounter(String target, MeterRegistry meterRegistry) {
+        return Counter.builder("datasource.routed")
+                .description("Соединения read-only транзакций по источникам")
+                .tag("target", target)
+                .register(meterRegistry);
+    }
+
+    private static final class Replica {
+        private final HikariDataSource pool;
+        private final Counter routed;
+        private volatile boolean healthy = true;
+
+        private Replica(HikariDataSource pool, MeterRegistry meterRegistry) {
+            this.pool = pool;
+            routed = routedCounter(pool.getPoolName(), meterRegistry);
+            Gauge.builder("datasource.replica.healthy", this, replica -> replica.healthy ? 1 : 0)
+                    .description("Доступность реплики для чтения")
+                    .tag("replica", pool.getPoolName())
+                    .register(meterRegistry);
+        }
+
+        private void markDown(SQLException e) {
+            if (healthy) {
+                log.warn("Реплика {} исключена из чтения: {}", pool.getPoolName(), e.getMessage());
+                healthy = false;
+            }
+        }
+    }
+}
@@ -0,0 +1,13 @@
+package com.mediasoft.dto;
+
+import lombok.Value;
+
+import java.util.List;
+
+@Value
+public class BulkItemResultDTO {
+    int index;
+    boolean created;
+    Long id;
+    List<String> errors;
+}
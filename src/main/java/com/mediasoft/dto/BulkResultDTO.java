@@ -0,0 +1,13 @@
+package com.mediasoft.dto;
+
+import lombok.Value;
+
+import java.util.List;
+
+@Value
+public class BulkResultDTO {
+    int total;
+    int created;
+    int failed;
+    List<BulkItemResultDTO> items;
+}
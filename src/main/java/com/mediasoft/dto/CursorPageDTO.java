@@ -0,0 +1,11 @@
+package com.mediasoft.dto;
+
+import lombok.Value;
+
+import java.util.List;
+
+@Value
+public class CursorPageDTO<T> {
+    List<T> items;
+    String nextCursor;
+}
@@ -0,0 +1,13 @@
+package com.mediasoft.dto;
+
+import lombok.Value;
+
+import java.math.BigDecimal;
+
+@Value
+public class FacetBucketDTO {
+    BigDecimal from;
+    // null у последнего, открытого сверху интервала
+    BigDecimal to;
+    long count;
+}
@@ -0,0 +1,9 @@
+package com.mediasoft.dto;
+
+import lombok.Value;
+
+@Value
+public class ImportErrorDTO {
+    long line;
+    String error;
+}
@@ -0,0 +1,15 @@
+package com.mediasoft.dto;
+
+import lombok.Value;
+
+import java.util.List;
+
+@Value
+public class ImportResultDTO {
+    long total;
+    long imported;
+    long rejected;
+    // строки, ключ которых уже есть в таблице или повторяется в файле
+    long duplicates;
+    List<ImportErrorDTO> errors;
+}
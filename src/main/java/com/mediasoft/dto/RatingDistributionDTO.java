@@ -0,0 +1,16 @@
+package com.mediasoft.dto;
+
+import lombok.Value;
+
+import java.math.BigDecimal;
+import java.util.Map;
+
+@Value
+public class RatingDistributionDTO {
+    Long restaurantId;
+    long reviewCount;
+    BigDecimal rating;
+    // число звёзд -> количество отзывов
+    Map<Integer, Long> stars;
+    Long version;
+}
@@ -0,0 +1,15 @@
+package com.mediasoft.dto;
+
+import lombok.Value;
+
+import java.util.List;
+import java.util.Map;
+
+@Value
+public class RestaurantFacetsDTO {
+    long total;
+    List<RestaurantResponseDTO> items;
+    Map<String, Long> cuisineTypes;
+    List<FacetBucketDTO> avgCheck;
+    List<FacetBucketDTO> rating;
+}
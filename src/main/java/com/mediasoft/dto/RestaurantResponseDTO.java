@@ -13,4 +13,5 @@ public class RestaurantResponseDTO {
     String cuisineType;
     BigDecimal avgCheck;
     BigDecimal rating;
+    Long version;
 }
@@ -8,4 +8,5 @@ public class ReviewResponseDTO {
     Long visitorId;
     String comment;
     int rating;
+    Long version;
 }
@@ -8,4 +8,5 @@ public class VisitorResponseDTO {
     String name;
     int age;
     String sex;
+    Long version;
 }
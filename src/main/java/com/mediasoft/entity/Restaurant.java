@@ -3,11 +3,15 @@ package com.mediasoft.entity;
 import jakarta.persistence.*;
 import jakarta.validation.constraints.NotNull;
 import lombok.*;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
 import java.math.BigDecimal;
 import java.util.List;
 
 @Entity
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
 @Table(name = "restaurants")
 @Getter
 @Setter
@@ -15,7 +19,8 @@ import java.util.List;
 @NoArgsConstructor
 public class Restaurant {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "restaurants_seq")
+    @SequenceGenerator(name = "restaurants_seq", sequenceName = "restaurants_seq", allocationSize = 50)
     private Long id;
 
     @Column(nullable = false)
@@ -32,9 +37,34 @@ public class Restaurant {
     @Column(nullable = false)
     private BigDecimal avgCheck;
 
-    @Column(nullable = false)
+    @Column(nullable = false, updatable = false)
     private BigDecimal rating = BigDecimal.ZERO;
 
+    @Column(name = "review_count", nullable = false, updatable = false)
+    private long reviewCount;
+
+    @Column(name = "rating_sum", nullable = false, updatable = false)
+    private long ratingSum;
+
+    @Column(name = "stars_1", nullable = false, updatable = false)
+    private long stars1;
+
+    @Column(name = "stars_2", nullable = false, updatable = false)
+    private long stars2;
+
+    @Column(name = "stars_3", nullable = false, updatable = false)
+    private long stars3;
+
+    @Column(name = "stars_4", nullable = false, updatable = false)
+    private long stars4;
+
+    @Column(name = "stars_5", nullable = false, updatable = false)
+    private long stars5;
+
+    @Version
+    @Column(nullable = false)
+    private Long version;
+
     @OneToMany(mappedBy = "restaurant", cascade = CascadeType.ALL, orphanRemoval = true)
     private List<Review> reviews;
 
@@ -32,4 +32,8 @@ public class Review {
 
     @Column(columnDefinition = "TEXT")
     private String comment;
+
+    @Version
+    @Column(nullable = false)
+    private Long version;
 }
@@ -2,10 +2,14 @@ package com.mediasoft.entity;
 
 import jakarta.persistence.*;
 import lombok.*;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
 import java.util.List;
 
 @Entity
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
 @Table(name = "visitors")
 @Getter
 @Setter
@@ -13,7 +17,8 @@ import java.util.List;
 @NoArgsConstructor
 public class Visitor {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "visitors_seq")
+    @SequenceGenerator(name = "visitors_seq", sequenceName = "visitors_seq", allocationSize = 50)
     private Long id;
 
     @Column(nullable = false)
@@ -26,6 +31,10 @@ public class Visitor {
     @Column(nullable = false)
     private Sex sex;
 
+    @Version
+    @Column(nullable = false)
+    private Long version;
+
     @OneToMany(mappedBy = "visitor", cascade = CascadeType.ALL, orphanRemoval = true)
     private List<Review> reviews;
 
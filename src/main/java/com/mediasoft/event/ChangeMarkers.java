@@ -0,0 +1,71 @@
+package com.mediasoft.event;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Маркер изменений коллекции для ETag списков: счётчик на ресурс, растёт только после коммита.
+// Контроллер читает маркер до загрузки страницы, поэтому ETag никогда не опережает данные.
+// Время запуска входит в маркер, чтобы после рестарта старые ETag не совпали.
+// Счётчики живут в памяти одного процесса: за балансировщиком другой экземпляр не видит чужих записей
+// и отдал бы устаревший 304, поэтому app.etag.change-markers по умолчанию выключен и включается только
+// при одном экземпляре приложения
+@Component
+public class ChangeMarkers {
+    public enum Resource {
+        RESTAURANTS, VISITORS, REVIEWS
+    }
+
+    private final String epoch = Long.toString(System.currentTimeMillis(), Character.MAX_RADIX);
+    private final Map<Resource, AtomicLong> counters = new EnumMap<>(Resource.class);
+    private final boolean enabled;
+
+    public ChangeMarkers(@Value("${app.etag.change-markers}") boolean enabled) {
+        this.enabled = enabled;
+        for (Resource resource : Resource.values()) {
+            counters.put(resource, new AtomicLong());
+        }
+    }
+
+    // null, если маркеры выключены: списки тогда отдаются без ETag
+    public String current(Resource resource) {
+        return enabled ? epoch + "." + counters.get(resource).get() : null;
+    }
+
+    public void touch(Resource... resources) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            increment(resources);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                increment(resources);
+            }
+        });
+    }
+
+    // события ресторана публикуются при любом изменении строки, в том числе рейтинга
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onChanged(RestaurantChangedEvent event) {
+        increment(Resource.RESTAURANTS);
+    }
+
+    // отзывы ресторана удаляются каскадом
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onDeleted(RestaurantDeletedEvent event) {
+        increment(Resource.RESTAURANTS, Resource.REVIEWS);
+    }
+
+    private void increment(Resource... resources) {
+        for (Resource resource : resources) {
+            counters.get(resource).incrementAndGet();
+        }
+    }
+}
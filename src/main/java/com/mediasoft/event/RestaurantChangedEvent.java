@@ -0,0 +1,9 @@
+package com.mediasoft.event;
+
+import com.mediasoft.dto.RestaurantResponseDTO;
+import lombok.Value;
+
+@Value
+public class RestaurantChangedEvent {
+    RestaurantResponseDTO restaurant;
+}
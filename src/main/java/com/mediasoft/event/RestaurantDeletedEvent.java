@@ -0,0 +1,8 @@
+package com.mediasoft.event;
+
+import lombok.Value;
+
+@Value
+public class RestaurantDeletedEvent {
+    Long id;
+}
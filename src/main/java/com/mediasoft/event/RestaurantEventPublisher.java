@@ -0,0 +1,27 @@
+package com.mediasoft.event;
+
+import com.mediasoft.dto.RestaurantResponseDTO;
+import com.mediasoft.repository.RestaurantRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Component;
+
+@Component
+@RequiredArgsConstructor
+public class RestaurantEventPublisher {
+    private final ApplicationEventPublisher publisher;
+    private final RestaurantRepository restaurantRepository;
+
+    public void changed(RestaurantResponseDTO restaurant) {
+        publisher.publishEvent(new RestaurantChangedEvent(restaurant));
+    }
+
+    // перечитывает строку ресторана после изменения агрегатов рейтинга в обход persistence context
+    public void changed(Long id) {
+        restaurantRepository.findResponseById(id).ifPresent(this::changed);
+    }
+
+    public void deleted(Long id) {
+        publisher.publishEvent(new RestaurantDeletedEvent(id));
+    }
+}
@@ -0,0 +1,25 @@
+package com.mediasoft.event;
+
+import com.mediasoft.entity.Restaurant;
+import jakarta.persistence.EntityManagerFactory;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+// Агрегаты рейтинга меняются нативными запросами в обход Hibernate, поэтому кэш второго уровня
+// сам о них не узнаёт: после коммита строка ресторана вытесняется
+@Component
+@RequiredArgsConstructor
+public class SecondLevelCacheEvictor {
+    private final EntityManagerFactory entityManagerFactory;
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onChanged(RestaurantChangedEvent event) {
+        entityManagerFactory.getCache().evict(Restaurant.class, event.getRestaurant().getId());
+    }
+
+    // загрузка через COPY не проходит через Hibernate вовсе
+    public void evictAll() {
+        entityManagerFactory.getCache().evictAll();
+    }
+}
@@ -0,0 +1,30 @@
+package com.mediasoft.export;
+
+import java.util.List;
+
+// Строка CSV по RFC 4180: поле в кавычках, если в нём есть разделитель, кавычка или перевод строки
+public final class CsvRow {
+    private CsvRow() {
+    }
+
+    public static String of(List<?> values) {
+        StringBuilder line = new StringBuilder();
+        for (int i = 0; i < values.size(); i++) {
+            if (i > 0) {
+                line.append(',');
+            }
+            Object value = values.get(i);
+            if (value != null) {
+                line.append(escape(value.toString()));
+            }
+        }
+        return line.append("\r\n").toString();
+    }
+
+    private static String escape(String value) {
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0 && value.indexOf('\r') < 0) {
+            return value;
+        }
+        return '"' + value.replace("\"", "\"\"") + '"';
+    }
+}
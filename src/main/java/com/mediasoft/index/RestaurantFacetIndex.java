@@ -0,0 +1,292 @@
+package com.mediasoft.index;
+
+import com.mediasoft.dto.FacetBucketDTO;
+import com.mediasoft.dto.RestaurantFacetsDTO;
+import com.mediasoft.dto.RestaurantResponseDTO;
+import com.mediasoft.entity.CuisineType;
+import com.mediasoft.event.RestaurantChangedEvent;
+import com.mediasoft.event.RestaurantDeletedEvent;
+import com.mediasoft.mapper.RestaurantMapper;
+import com.mediasoft.repository.RestaurantRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.annotation.Order;
+import org.springframework.data.domain.Limit;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.math.BigDecimal;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.PriorityQueue;
+import java.util.TreeSet;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.IntFunction;
+
+// Фасетный индекс ресторанов: у каждого ресторана свой номер слота, по типу кухни и по интервалам
+// среднего чека и рейтинга хранятся битовые карты слотов. Фильтр — пересечение карт,
+// значения уточняются только в интервалах, которые граница фильтра режет пополам.
+// До конца пересборки при старте индекс неполон, и запросы к нему отклоняются с 503
+@Component
+@RequiredArgsConstructor
+public class RestaurantFacetIndex {
+    private static final int REBUILD_PAGE_SIZE = 1000;
+
+    private static final BigDecimal[] AVG_CHECK_EDGES = decimals("0", "500", "1000", "1500", "2000", "3000", "5000");
+    private static final BigDecimal[] RATING_EDGES = decimals("0", "1", "2", "3", "3.5", "4", "4.5", "5");
+
+    private static final Comparator<RestaurantResponseDTO> ORDER = Comparator.comparing(RestaurantResponseDTO::getRating).reversed()
+            .thenComparing(RestaurantResponseDTO::getId);
+
+    private final RestaurantRepository restaurantRepository;
+    private final RestaurantMapper restaurantMapper;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<Long, Integer> slots = new HashMap<>();
+    private final Deque<Integer> freeSlots = new ArrayDeque<>();
+    private final List<RestaurantResponseDTO> rows = new ArrayList<>();
+    private final NavigableSet<RestaurantResponseDTO> ordered = new TreeSet<>(ORDER);
+    private final BitSet live = new BitSet();
+    private final Map<CuisineType, BitSet> cuisineTypes = new EnumMap<>(CuisineType.class);
+    private final Buckets avgCheck = new Buckets(AVG_CHECK_EDGES);
+    private final Buckets rating = new Buckets(RATING_EDGES);
+    private final RestaurantVersions versions = new RestaurantVersions();
+    private volatile boolean ready;
+
+    {
+        for (CuisineType cuisineType : CuisineType.values()) {
+            cuisineTypes.put(cuisineType, new BitSet());
+        }
+    }
+
+    // Счётчики каждого фасета считаются с остальными фильтрами, но без своего собственного
+    public RestaurantFacetsDTO filter(Collection<CuisineType> cuisineFilter, BigDecimal minAvgCheck, BigDecimal maxAvgCheck,
+                                      BigDecimal minRating, int limit) {
+        if (!ready) {
+            throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "Индекс ресторанов ещё строится");
+        }
+        lock.readLock().lock();
+        try {
+            BitSet byCuisine = cuisineFilter.isEmpty() ? live : union(cuisineFilter);
+            BitSet byAvgCheck = avgCheck.select(minAvgCheck, maxAvgCheck, slot -> rows.get(slot).getAvgCheck());
+            BitSet byRating = rating.select(minRating, null, slot -> rows.get(slot).getRating());
+
+            BitSet matched = intersect(byCuisine, byAvgCheck, byRating);
+            int matchedCount = matched.cardinality();
+            List<RestaurantResponseDTO> items = top(matched, matchedCount, limit);
+
+            BitSet withoutCuisine = intersect(byAvgCheck, byRating);
+            Map<String, Long> cuisineCounts = new LinkedHashMap<>();
+            cuisineTypes.forEach((cuisineType, bits) -> cuisineCounts.put(cuisineType.name(), countAnd(bits, withoutCuisine)));
+
+            return new RestaurantFacetsDTO(matchedCount, items, cuisineCounts,
+                    avgCheck.counts(intersect(byCuisine, byRating)),
+                    rating.counts(intersect(byCuisine, byAvgCheck)));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Order(1)
+    public void rebuild() {
+        long afterId = 0L;
+        List<RestaurantResponseDTO> page;
+        do {
+            page = restaurantRepository.findResponsesAfter(afterId, Limit.of(REBUILD_PAGE_SIZE));
+            page.forEach(this::put);
+            if (!page.isEmpty()) {
+                afterId = page.get(page.size() - 1).getId();
+            }
+        } while (page.size() == REBUILD_PAGE_SIZE);
+        ready = true;
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onChanged(RestaurantChangedEvent event) {
+        put(event.getRestaurant());
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onDeleted(RestaurantDeletedEvent event) {
+        lock.writeLock().lock();
+        try {
+            versions.delete(event.getId());
+            Integer slot = slots.remove(event.getId());
+            if (slot != null) {
+                clear(slot);
+                rows.set(slot, null);
+                freeSlots.push(slot);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void put(RestaurantResponseDTO restaurant) {
+        CuisineType cuisineType = restaurantMapper.map(restaurant.getCuisineType());
+        lock.writeLock().lock();
+        try {
+            if (!versions.accept(restaurant)) {
+                return;
+            }
+            Integer slot = slots.get(restaurant.getId());
+            if (slot == null) {
+                slot = freeSlots.isEmpty() ? rows.size() : freeSlots.pop();
+                slots.put(restaurant.getId(), slot);
+                if (slot == rows.size()) {
+                    rows.add(null);
+                }
+            } else {
+                clear(slot);
+            }
+            rows.set(slot, restaurant);
+            ordered.add(restaurant);
+            live.set(slot);
+            cuisineTypes.get(cuisineType).set(slot);
+            avgCheck.add(slot, restaurant.getAvgCheck());
+            rating.add(slot, restaurant.getRating());
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void clear(int slot) {
+        RestaurantResponseDTO previous = rows.get(slot);
+        ordered.remove(previous);
+        live.clear(slot);
+        cuisineTypes.get(restaurantMapper.map(previous.getCuisineType())).clear(slot);
+        avgCheck.remove(slot, previous.getAvgCheck());
+        rating.remove(slot, previous.getRating());
+    }
+
+    // Первые limit совпадений в порядке рейтинга. Широкий фильтр дешевле пройти по общему порядку
+    // до limit совпадений (в среднем limit * n / m шагов), узкий — отобрать кучей на limit элементов (m log limit)
+    private List<RestaurantResponseDTO> top(BitSet matched, int matchedCount, int limit) {
+        if ((long) limit * slots.size() <= (long) matchedCount * matchedCount) {
+            List<RestaurantResponseDTO> result = new ArrayList<>(limit);
+            for (RestaurantResponseDTO restaurant : ordered) {
+                if (result.size() == limit) {
+                    break;
+                }
+                if (matched.get(slots.get(restaurant.getId()))) {
+                    result.add(restaurant);
+                }
+            }
+            return result;
+        }
+        PriorityQueue<RestaurantResponseDTO> heap = new PriorityQueue<>(limit + 1, ORDER.reversed());
+        matched.stream().forEach(slot -> {
+            heap.add(rows.get(slot));
+            if (heap.size() > limit) {
+                heap.poll();
+            }
+        });
+        List<RestaurantResponseDTO> result = new ArrayList<>(heap);
+        result.sort(ORDER);
+        return result;
+    }
+
+    private BitSet union(Collection<CuisineType> filter) {
+        BitSet result = new BitSet();
+        filter.forEach(cuisineType -> result.or(cuisineTypes.get(cuisineType)));
+        return result;
+    }
+
+    private static BitSet intersect(BitSet... bitSets) {
+        BitSet result = (BitSet) bitSets[0].clone();
+        for (int i = 1; i < bitSets.length; i++) {
+            result.and(bitSets[i]);
+        }
+        return result;
+    }
+
+    private static long countAnd(BitSet left, BitSet right) {
+        BitSet result = (BitSet) left.clone();
+        result.and(right);
+        return result.cardinality();
+    }
+
+    private static BigDecimal[] decimals(String... values) {
+        BigDecimal[] result = new BigDecimal[values.length];
+        for (int i = 0; i < values.length; i++) {
+            result[i] = new BigDecimal(values[i]);
+        }
+        return result;
+    }
+
+    // Интервал i — [edges[i], edges[i + 1]), последний открыт сверху
+    private static final class Buckets {
+        private final BigDecimal[] edges;
+        private final BitSet[] bitSets;
+
+        private Buckets(BigDecimal[] edges) {
+            this.edges = edges;
+            bitSets = new BitSet[edges.length];
+            for (int i = 0; i < edges.length; i++) {
+                bitSets[i] = new BitSet();
+            }
+        }
+
+        private int bucketOf(BigDecimal value) {
+            int bucket = 0;
+            while (bucket + 1 < edges.length && value.compareTo(edges[bucket + 1]) >= 0) {
+                bucket++;
+            }
+            return bucket;
+        }
+
+        private void add(int slot, BigDecimal value) {
+            bitSets[bucketOf(value)].set(slot);
+        }
+
+        private void remove(int slot, BigDecimal value) {
+            bitSets[bucketOf(value)].clear(slot);
+        }
+
+        // [min, max] включительно, null — без границы
+        private BitSet select(BigDecimal min, BigDecimal max, IntFunction<BigDecimal> valueOf) {
+            int first = min == null ? 0 : bucketOf(min);
+            int last = max == null ? edges.length - 1 : bucketOf(max);
+            BitSet result = new BitSet();
+            for (int bucket = first; bucket <= last; bucket++) {
+                boolean cutByMin = min != null && bucket == first && min.compareTo(edges[bucket]) > 0;
+                boolean cutByMax = max != null && bucket == last;
+                if (!cutByMin && !cutByMax) {
+                    result.or(bitSets[bucket]);
+                    continue;
+                }
+                bitSets[bucket].stream().forEach(slot -> {
+                    BigDecimal value = valueOf.apply(slot);
+                    if ((min == null || value.compareTo(min) >= 0) && (max == null || value.compareTo(max) <= 0)) {
+                        result.set(slot);
+                    }
+                });
+            }
+            return result;
+        }
+
+        private List<FacetBucketDTO> counts(BitSet filter) {
+            List<FacetBucketDTO> counts = new ArrayList<>(edges.length);
+            for (int i = 0; i < edges.length; i++) {
+                counts.add(new FacetBucketDTO(edges[i], i + 1 < edges.length ? edges[i + 1] : null,
+                        countAnd(bitSets[i], filter)));
+            }
+            return counts;
+        }
+    }
+}
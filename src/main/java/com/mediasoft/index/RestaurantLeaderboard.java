@@ -0,0 +1,141 @@
+package com.mediasoft.index;
+
+import com.mediasoft.dto.RestaurantResponseDTO;
+import com.mediasoft.entity.CuisineType;
+import com.mediasoft.event.RestaurantChangedEvent;
+import com.mediasoft.event.RestaurantDeletedEvent;
+import com.mediasoft.mapper.RestaurantMapper;
+import com.mediasoft.repository.RestaurantRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.annotation.Order;
+import org.springframework.data.domain.Limit;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.math.BigDecimal;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+
+// Лучшие рестораны по каждому типу кухни и общий рейтинг: отсортированные множества (rating desc, id asc),
+// обновляются после коммита изменений ресторана и пересобираются из БД при старте.
+// До конца пересборки индекс неполон, и запросы к нему отклоняются с 503
+@Component
+@RequiredArgsConstructor
+public class RestaurantLeaderboard {
+    private static final int REBUILD_PAGE_SIZE = 1000;
+
+    private static final Comparator<Entry> ORDER = Comparator.comparing(Entry::rating).reversed()
+            .thenComparingLong(Entry::id);
+
+    private final RestaurantRepository restaurantRepository;
+    private final RestaurantMapper restaurantMapper;
+
+    private final Map<CuisineType, NavigableSet<Entry>> rankings = new EnumMap<>(CuisineType.class);
+    private final NavigableSet<Entry> overall = new ConcurrentSkipListSet<>(ORDER);
+    private final Map<Long, Entry> entries = new ConcurrentHashMap<>();
+    private final RestaurantVersions versions = new RestaurantVersions();
+    private volatile boolean ready;
+
+    {
+        for (CuisineType cuisineType : CuisineType.values()) {
+            rankings.put(cuisineType, new ConcurrentSkipListSet<>(ORDER));
+        }
+    }
+
+    public List<RestaurantResponseDTO> top(CuisineType cuisineType, int limit) {
+        checkReady();
+        return rankings.get(cuisineType).stream()
+                .limit(limit)
+                .map(Entry::restaurant)
+                .toList();
+    }
+
+    // рестораны с рейтингом не ниже minRating, следующие за (afterRating, afterId); afterRating = null — с начала.
+    // Границы диапазона ищутся за O(log n), страница читается за O(limit)
+    public List<RestaurantResponseDTO> withMinRating(BigDecimal minRating, BigDecimal afterRating, long afterId, int limit) {
+        checkReady();
+        Entry last = new Entry(Long.MAX_VALUE, minRating, null, null);
+        if (afterRating == null) {
+            return page(overall.headSet(last, true), limit);
+        }
+        Entry after = new Entry(afterId, afterRating, null, null);
+        if (ORDER.compare(after, last) >= 0) {
+            return List.of();
+        }
+        return page(overall.subSet(after, false, last, true), limit);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Order(1)
+    public void rebuild() {
+        long afterId = 0L;
+        List<RestaurantResponseDTO> page;
+        do {
+            page = restaurantRepository.findResponsesAfter(afterId, Limit.of(REBUILD_PAGE_SIZE));
+            page.forEach(this::put);
+            if (!page.isEmpty()) {
+                afterId = page.get(page.size() - 1).getId();
+            }
+        } while (page.size() == REBUILD_PAGE_SIZE);
+        ready = true;
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onChanged(RestaurantChangedEvent event) {
+        put(event.getRestaurant());
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onDeleted(RestaurantDeletedEvent event) {
+        remove(event.getId());
+    }
+
+    private synchronized void put(RestaurantResponseDTO restaurant) {
+        if (!versions.accept(restaurant)) {
+            return;
+        }
+        unlink(restaurant.getId());
+        Entry entry = new Entry(restaurant.getId(), restaurant.getRating(), restaurantMapper.map(restaurant.getCuisineType()), restaurant);
+        entries.put(entry.id(), entry);
+        rankings.get(entry.cuisineType()).add(entry);
+        overall.add(entry);
+    }
+
+    private synchronized void remove(Long id) {
+        versions.delete(id);
+        unlink(id);
+    }
+
+    private void unlink(Long id) {
+        Entry previous = entries.remove(id);
+        if (previous != null) {
+            rankings.get(previous.cuisineType()).remove(previous);
+            overall.remove(previous);
+        }
+    }
+
+    private void checkReady() {
+        if (!ready) {
+            throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "Индекс ресторанов ещё строится");
+        }
+    }
+
+    private static List<RestaurantResponseDTO> page(NavigableSet<Entry> range, int limit) {
+        return range.stream()
+                .limit(limit)
+                .map(Entry::restaurant)
+                .toList();
+    }
+
+    private record Entry(long id, BigDecimal rating, CuisineType cuisineType, RestaurantResponseDTO restaurant) {
+    }
+}
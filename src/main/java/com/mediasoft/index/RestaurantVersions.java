@@ -0,0 +1,51 @@
+package com.mediasoft.index;
+
+import com.mediasoft.dto.RestaurantResponseDTO;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Map;
+
+// Последняя применённая версия каждого ресторана в индексе в памяти. События после коммита приходят
+// из разных потоков в любом порядке, а пересборка читает страницы параллельно с ними, поэтому снимок
+// старее применённого отбрасывается. Удалённый id остаётся надгробием, чтобы поздний снимок удалённого
+// ресторана не вернул его в индекс. Запоздать снимок может на время страницы пересборки или доставки события,
+// поэтому надгробие живёт TOMBSTONE_TTL и потом удаляется: id из последовательности не переиспользуются.
+// Не потокобезопасен, вызывается под блокировкой индекса
+final class RestaurantVersions {
+    private static final long DELETED = Long.MAX_VALUE;
+    private static final long TOMBSTONE_TTL_NANOS = Duration.ofMinutes(10).toNanos();
+
+    private final Map<Long, Long> versions = new HashMap<>();
+    // надгробия в порядке удаления, самые старые в начале
+    private final Deque<Tombstone> tombstones = new ArrayDeque<>();
+
+    // true, если снимок новее применённого и его нужно записать в индекс
+    boolean accept(RestaurantResponseDTO restaurant) {
+        pruneTombstones();
+        Long current = versions.get(restaurant.getId());
+        if (current != null && current > restaurant.getVersion()) {
+            return false;
+        }
+        versions.put(restaurant.getId(), restaurant.getVersion());
+        return true;
+    }
+
+    void delete(Long id) {
+        pruneTombstones();
+        versions.put(id, DELETED);
+        tombstones.addLast(new Tombstone(id, System.nanoTime()));
+    }
+
+    private void pruneTombstones() {
+        long now = System.nanoTime();
+        while (!tombstones.isEmpty() && now - tombstones.peekFirst().deletedAt() > TOMBSTONE_TTL_NANOS) {
+            versions.remove(tombstones.pollFirst().id(), DELETED);
+        }
+    }
+
+    private record Tombstone(Long id, long deletedAt) {
+    }
+}
@@ -0,0 +1,89 @@
+package com.mediasoft.limit;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Адаптивный лимит одновременных запросов по градиенту задержки (в духе Gradient2) с мультипликативным
+// снижением при ошибках. Долгая средняя задержка — оценка «нормы»; пока текущая задержка укладывается
+// в норму с запасом TOLERANCE, лимит растёт на sqrt(limit), когда база тормозит — сжимается пропорционально
+public class AdaptiveLimiter {
+    // окно долгой средней задержки в запросах
+    private static final int LONG_WINDOW = 600;
+    private static final double TOLERANCE = 1.5;
+    private static final double SMOOTHING = 0.2;
+    private static final double BACKOFF_RATIO = 0.9;
+
+    private final int minLimit;
+    private final int maxLimit;
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private volatile double limit;
+    private double longRtt;
+
+    public AdaptiveLimiter(int initialLimit, int minLimit, int maxLimit) {
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.limit = initialLimit;
+    }
+
+    // share < 1 оставляет часть лимита более приоритетным запросам
+    public boolean tryAcquire(double share) {
+        int capacity = Math.max(1, (int) (limit * share));
+        while (true) {
+            int current = inFlight.get();
+            if (current >= capacity) {
+                return false;
+            }
+            if (inFlight.compareAndSet(current, current + 1)) {
+                return true;
+            }
+        }
+    }
+
+    public void release(long rttNanos, boolean dropped) {
+        int concurrency = inFlight.getAndDecrement();
+        if (dropped) {
+            onDrop();
+        } else {
+            onSample(rttNanos, concurrency);
+        }
+    }
+
+    // завершение без замера задержки: ошибка по-прежнему сжимает лимит
+    public void release(boolean dropped) {
+        inFlight.decrementAndGet();
+        if (dropped) {
+            onDrop();
+        }
+    }
+
+    public int getLimit() {
+        return (int) limit;
+    }
+
+    public int getInFlight() {
+        return inFlight.get();
+    }
+
+    private synchronized void onSample(long rttNanos, int concurrency) {
+        double rtt = Math.max(rttNanos, 1);
+        longRtt = longRtt == 0 ? rtt : longRtt + (rtt - longRtt) * 2 / (LONG_WINDOW + 1);
+        // после перегрузки долгая средняя остаётся завышенной: подтягиваем её к текущей задержке
+        if (longRtt / rtt > 2) {
+            longRtt *= 0.95;
+        }
+        // при малой нагрузке задержка ничего не говорит о пределе, лимит не трогаем
+        if (concurrency < limit / 2) {
+            return;
+        }
+        double gradient = Math.max(0.5, Math.min(1.0, TOLERANCE * longRtt / rtt));
+        double newLimit = limit * gradient + Math.sqrt(limit);
+        limit = clamp(limit * (1 - SMOOTHING) + newLimit * SMOOTHING);
+    }
+
+    private synchronized void onDrop() {
+        limit = clamp(limit * BACKOFF_RATIO);
+    }
+
+    private double clamp(double value) {
+        return Math.max(minLimit, Math.min(maxLimit, value));
+    }
+}
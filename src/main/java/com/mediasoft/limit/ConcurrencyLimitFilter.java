@@ -0,0 +1,134 @@
+package com.mediasoft.limit;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpHeaders;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Map;
+
+// Ограничение одновременных запросов по группам эндпоинтов: лишние запросы сразу получают 503
+// с Retry-After, а не ждут соединения с базой в очереди потоков Tomcat.
+// Пакетная загрузка занимает только bulk-share лимита, остальное всегда остаётся чтению и одиночным запросам.
+// Ошибкой для лимита считаются только исключения, таймауты и 5xx сервера; собственные 503 приложения
+// (отказ лимита, недостроенный индекс, лимит выгрузок) говорят не о перегрузке базы и лимит не сжимают
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE + 10)
+public class ConcurrencyLimitFilter extends OncePerRequestFilter {
+    public enum Group {
+        RESTAURANTS, VISITORS, REVIEW_READS, REVIEW_WRITES
+    }
+
+    private final boolean enabled;
+    private final double bulkShare;
+    private final String retryAfter;
+    private final Map<Group, AdaptiveLimiter> limiters = new EnumMap<>(Group.class);
+    private final Map<Group, Counter> rejected = new EnumMap<>(Group.class);
+    private final Map<Group, Counter> rejectedBulk = new EnumMap<>(Group.class);
+
+    public ConcurrencyLimitFilter(MeterRegistry meterRegistry,
+                                  @Value("${app.limit.enabled}") boolean enabled,
+                                  @Value("${app.limit.initial}") int initialLimit,
+                                  @Value("${app.limit.min}") int minLimit,
+                                  @Value("${app.limit.max}") int maxLimit,
+                                  @Value("${app.limit.bulk-share}") double bulkShare,
+                                  @Value("${app.limit.retry-after}") Duration retryAfter) {
+        this.enabled = enabled;
+        this.bulkShare = bulkShare;
+        this.retryAfter = String.valueOf(Math.max(1, retryAfter.toSeconds()));
+        for (Group group : Group.values()) {
+            AdaptiveLimiter limiter = new AdaptiveLimiter(initialLimit, minLimit, maxLimit);
+            limiters.put(group, limiter);
+            String tag = group.name().toLowerCase();
+            Gauge.builder("http.concurrency.limit", limiter, AdaptiveLimiter::getLimit)
+                    .description("Текущий адаптивный лимит одновременных запросов")
+                    .tag("group", tag)
+                    .register(meterRegistry);
+            Gauge.builder("http.concurrency.in.flight", limiter, AdaptiveLimiter::getInFlight)
+                    .description("Запросы группы, выполняющиеся сейчас")
+                    .tag("group", tag)
+                    .register(meterRegistry);
+            rejected.put(group, rejectedCounter(meterRegistry, tag, "normal"));
+            rejectedBulk.put(group, rejectedCounter(meterRegistry, tag, "bulk"));
+        }
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !enabled || group(request) == null;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        Group group = group(request);
+        AdaptiveLimiter limiter = limiters.get(group);
+        boolean bulk = request.getRequestURI().endsWith("/bulk");
+        if (!limiter.tryAcquire(bulk ? bulkShare : 1.0)) {
+            (bulk ? rejectedBulk : rejected).get(group).increment();
+            response.setHeader(HttpHeaders.RETRY_AFTER, retryAfter);
+            response.sendError(HttpServletResponse.SC_SERVICE_UNAVAILABLE, "Сервис перегружен, повторите запрос позже");
+            return;
+        }
+        long start = System.nanoTime();
+        boolean dropped = true;
+        try {
+            filterChain.doFilter(request, response);
+            dropped = isServerError(response.getStatus());
+        } finally {
+            if (bulk) {
+                // пакет идёт секунды и растёт с размером, его задержка не говорит о норме для группы
+                limiter.release(dropped);
+            } else {
+                limiter.release(System.nanoTime() - start, dropped);
+            }
+        }
+    }
+
+    private static boolean isServerError(int status) {
+        return status >= HttpServletResponse.SC_INTERNAL_SERVER_ERROR
+                && status != HttpServletResponse.SC_NOT_IMPLEMENTED
+                && status != HttpServletResponse.SC_SERVICE_UNAVAILABLE;
+    }
+
+    // выгрузка, импорт и поиск в группы не входят: их задержка в разы выше обычных запросов и сбивала бы
+    // градиент, а число выгрузок ограничено соединениями в ExportService
+    private static Group group(HttpServletRequest request) {
+        String path = request.getRequestURI().substring(request.getContextPath().length());
+        // ленты /api/restaurants/{id}/reviews и /api/visitors/{id}/reviews читают таблицу отзывов
+        if (path.endsWith("/reviews") && (path.startsWith("/api/restaurants/") || path.startsWith("/api/visitors/"))) {
+            return Group.REVIEW_READS;
+        }
+        if (path.startsWith("/api/restaurants")) {
+            return Group.RESTAURANTS;
+        }
+        if (path.startsWith("/api/visitors")) {
+            return Group.VISITORS;
+        }
+        if (path.startsWith("/api/reviews")) {
+            String method = request.getMethod();
+            return "GET".equals(method) || "HEAD".equals(method) ? Group.REVIEW_READS : Group.REVIEW_WRITES;
+        }
+        return null;
+    }
+
+    private static Counter rejectedCounter(MeterRegistry meterRegistry, String group, String priority) {
+        return Counter.builder("http.concurrency.rejected")
+                .description("Запросы, отклонённые из-за перегрузки")
+                .tag("group", group)
+                .tag("priority", priority)
+                .register(meterRegistry);
+    }
+}
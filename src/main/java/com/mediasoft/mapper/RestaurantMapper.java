@@ -6,12 +6,33 @@ import com.mediasoft.entity.CuisineType;
 import com.mediasoft.entity.Restaurant;
 import org.mapstruct.Mapper;
 import org.mapstruct.Mapping;
+import org.mapstruct.MappingTarget;
 
 @Mapper(componentModel = "spring")
 public interface RestaurantMapper {
     @Mapping(source = "cuisineType", target = "cuisineType")
     @Mapping(source = "avgCheck", target = "avgCheck")
+    @Mapping(target = "reviewCount", ignore = true)
+    @Mapping(target = "ratingSum", ignore = true)
+    @Mapping(target = "stars1", ignore = true)
+    @Mapping(target = "stars2", ignore = true)
+    @Mapping(target = "stars3", ignore = true)
+    @Mapping(target = "stars4", ignore = true)
+    @Mapping(target = "stars5", ignore = true)
+    @Mapping(target = "version", ignore = true)
     Restaurant toRestaurant(RestaurantRequestDTO restaurantRequestDTO);
+    @Mapping(target = "id", ignore = true)
+    @Mapping(target = "rating", ignore = true)
+    @Mapping(target = "reviewCount", ignore = true)
+    @Mapping(target = "ratingSum", ignore = true)
+    @Mapping(target = "stars1", ignore = true)
+    @Mapping(target = "stars2", ignore = true)
+    @Mapping(target = "stars3", ignore = true)
+    @Mapping(target = "stars4", ignore = true)
+    @Mapping(target = "stars5", ignore = true)
+    @Mapping(target = "version", ignore = true)
+    @Mapping(target = "reviews", ignore = true)
+    void updateRestaurant(RestaurantRequestDTO restaurantRequestDTO, @MappingTarget Restaurant restaurant);
     @Mapping(source = "cuisineType", target = "cuisineType")
     RestaurantResponseDTO toRestaurantResponseDTO(Restaurant restaurant);
 
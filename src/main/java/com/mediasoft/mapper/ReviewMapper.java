@@ -12,9 +12,11 @@ public interface ReviewMapper {
     @Mapping(target = "restaurantId", source = "restaurant.id")
     @Mapping(target = "visitorId", source = "visitor.id")
     ReviewResponseDTO toReviewResponseDTO(Review review);
+    @Mapping(target = "version", ignore = true)
     Review toReview(ReviewUpdateRequestDTO reviewUpdateRequestDTO);
-    @Mapping(target = "id", expression = "java(new com.mediasoft.entity.ReviewID(reviewRequestDTO.getRestaurantId(), reviewRequestDTO.getVisitorId()))")
+    @Mapping(target = "id", expression = "java(new com.mediasoft.entity.ReviewID(reviewRequestDTO.getVisitorId(), reviewRequestDTO.getRestaurantId()))")
     @Mapping(target = "restaurant", expression = "java(new com.mediasoft.entity.Restaurant(reviewRequestDTO.getRestaurantId()))")
     @Mapping(target = "visitor", expression = "java(new com.mediasoft.entity.Visitor(reviewRequestDTO.getVisitorId()))")
+    @Mapping(target = "version", ignore = true)
     Review toReview(ReviewRequestDTO reviewRequestDTO);
 }
@@ -5,10 +5,16 @@ import com.mediasoft.dto.VisitorResponseDTO;
 import com.mediasoft.entity.Visitor;
 import org.mapstruct.Mapper;
 import org.mapstruct.Mapping;
+import org.mapstruct.MappingTarget;
 
 @Mapper(componentModel = "spring")
 public interface VisitorMapper {
 //    @Mapping(source = "sex", target = "Sex")
+    @Mapping(target = "version", ignore = true)
     Visitor toVisitor(VisitorRequestDTO visitorRequestDTO);
+    @Mapping(target = "id", ignore = true)
+    @Mapping(target = "version", ignore = true)
+    @Mapping(target = "reviews", ignore = true)
+    void updateVisitor(VisitorRequestDTO visitorRequestDTO, @MappingTarget Visitor visitor);
     VisitorResponseDTO toVisitorResponseDTO(Visitor visitor);
 }
@@ -0,0 +1,148 @@
+package com.mediasoft.rating;
+
+import com.mediasoft.config.CacheConfig;
+import com.mediasoft.event.RestaurantEventPublisher;
+import com.mediasoft.repository.RestaurantRepository;
+import com.mediasoft.repository.RestaurantRepository.RatedRestaurant;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+// Отложенный пересчёт рейтинга: запись отзыва только помечает ресторан, а планировщик
+// пересчитывает каждый помеченный ресторан один раз за тик, пачками по batch-size
+@Slf4j
+@Component
+public class RatingRecomputeQueue {
+    private final RestaurantRepository restaurantRepository;
+    private final RestaurantEventPublisher restaurantEventPublisher;
+    private final CacheManager cacheManager;
+    private final TransactionTemplate transactionTemplate;
+    private final Timer recomputeTimer;
+    private final DistributionSummary batchSizes;
+    private final boolean enabled;
+    private final int batchSize;
+
+    // id ресторана -> момент первой пометки (System.nanoTime)
+    private final Map<Long, Long> dirty = new ConcurrentHashMap<>();
+
+    public RatingRecomputeQueue(RestaurantRepository restaurantRepository,
+                                RestaurantEventPublisher restaurantEventPublisher,
+                                CacheManager cacheManager,
+                                PlatformTransactionManager transactionManager,
+                                MeterRegistry meterRegistry,
+                                @Value("${app.rating.async.enabled}") boolean enabled,
+                                @Value("${app.rating.async.batch-size}") int batchSize) {
+        this.restaurantRepository = restaurantRepository;
+        this.restaurantEventPublisher = restaurantEventPublisher;
+        this.cacheManager = cacheManager;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.enabled = enabled;
+        this.batchSize = batchSize;
+        recomputeTimer = Timer.builder("rating.recompute")
+                .description("Пересчёт агрегатов рейтинга")
+                .tag("trigger", "queue")
+                .register(meterRegistry);
+        batchSizes = DistributionSummary.builder("rating.recompute.batch.size")
+                .description("Рестораны в одной пачке пересчёта")
+                .register(meterRegistry);
+        Gauge.builder("rating.recompute.queue.depth", dirty, Map::size)
+                .description("Рестораны, ожидающие пересчёта рейтинга")
+                .register(meterRegistry);
+        Gauge.builder("rating.recompute.lag", this, queue -> queue.lagNanos() / 1e9)
+                .description("Возраст самой старой пометки в очереди пересчёта")
+                .baseUnit("seconds")
+                .register(meterRegistry);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    // пометка ставится после коммита, иначе пересчёт может не увидеть ещё не закоммиченный отзыв
+    public void markDirty(Long restaurantId) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            dirty.putIfAbsent(restaurantId, System.nanoTime());
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                dirty.putIfAbsent(restaurantId, System.nanoTime());
+            }
+        });
+    }
+
+    @Scheduled(fixedDelayString = "${app.rating.async.interval}", timeUnit = TimeUnit.MILLISECONDS)
+    public void drain() {
+        if (!enabled) {
+            return;
+        }
+        int pending = dirty.size();
+        while (pending > 0) {
+            Long[] ids = take(Math.min(pending, batchSize));
+            if (ids.length == 0) {
+                return;
+            }
+            pending -= ids.length;
+            recompute(ids);
+        }
+    }
+
+    private Long[] take(int count) {
+        Long[] ids = new Long[count];
+        int taken = 0;
+        Iterator<Long> iterator = dirty.keySet().iterator();
+        while (taken < count && iterator.hasNext()) {
+            ids[taken++] = iterator.next();
+            iterator.remove();
+        }
+        return Arrays.copyOf(ids, taken);
+    }
+
+    private void recompute(Long[] ids) {
+        List<RatedRestaurant> restaurants;
+        try {
+            restaurants = recomputeTimer.record(() ->
+                    transactionTemplate.execute(status -> restaurantRepository.recomputeRatingAggregates(ids)));
+            batchSizes.record(ids.length);
+        } catch (RuntimeException e) {
+            log.warn("Не удалось пересчитать рейтинг {} ресторанов, повтор на следующем тике", ids.length, e);
+            long now = System.nanoTime();
+            for (Long id : ids) {
+                dirty.putIfAbsent(id, now);
+            }
+            return;
+        }
+        Cache restaurantCache = cacheManager.getCache(CacheConfig.RESTAURANTS);
+        for (RatedRestaurant restaurant : restaurants) {
+            restaurantCache.evict(restaurant.getId());
+            restaurantEventPublisher.changed(restaurant.toResponse());
+        }
+    }
+
+    private long lagNanos() {
+        long now = System.nanoTime();
+        return dirty.values().stream()
+                .mapToLong(markedAt -> now - markedAt)
+                .max()
+                .orElse(0L);
+    }
+}
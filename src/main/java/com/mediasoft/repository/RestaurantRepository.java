@@ -1,17 +1,188 @@
 package com.mediasoft.repository;
 
+import com.mediasoft.dto.RatingDistributionDTO;
+import com.mediasoft.dto.RestaurantResponseDTO;
 import com.mediasoft.entity.Restaurant;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.stereotype.Repository;
 
+import java.math.BigDecimal;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Stream;
 
 @Repository
 public interface RestaurantRepository extends JpaRepository<Restaurant, Long> {
-    List<Restaurant> findByRatingGreaterThanEqual(Double rating);
+    String RESPONSE_PROJECTION = "SELECT new com.mediasoft.dto.RestaurantResponseDTO("
+            + "r.id, r.name, r.description, CAST(r.cuisineType AS String), r.avgCheck, r.rating, r.version) FROM Restaurant r ";
 
-    @Query("SELECT r FROM Restaurant r WHERE r.rating >= :rating")
-    List<Restaurant> findRestaurantsWithMinRating(double rating);
+    // Пространство запросов для нативных обновлений агрегатов. Без него Hibernate после executeUpdate
+    // сбрасывает весь кэш второго уровня, а изменённые строки и так вытесняются точечно по событию ресторана
+    String RATING_QUERY_SPACE = "restaurant_ratings";
+
+    // Счётчики отзывов по числу звёзд для подзапросов пересчёта агрегатов (s1..s5)
+    String STAR_COUNTS = """
+            COUNT(*) FILTER (WHERE rating = 1) AS s1, COUNT(*) FILTER (WHERE rating = 2) AS s2,
+            COUNT(*) FILTER (WHERE rating = 3) AS s3, COUNT(*) FILTER (WHERE rating = 4) AS s4,
+            COUNT(*) FILTER (WHERE rating = 5) AS s5
+            """;
+
+    String STAR_ASSIGNMENTS = """
+            stars_1 = COALESCE(s.s1, 0), stars_2 = COALESCE(s.s2, 0), stars_3 = COALESCE(s.s3, 0),
+            stars_4 = COALESCE(s.s4, 0), stars_5 = COALESCE(s.s5, 0),
+            """;
+
+    @Query(RESPONSE_PROJECTION + "WHERE r.id > :id ORDER BY r.id")
+    List<RestaurantResponseDTO> findResponsesAfter(Long id, Limit limit);
+
+    @Query(RESPONSE_PROJECTION + "WHERE r.id = :id")
+    Optional<RestaurantResponseDTO> findResponseById(Long id);
+
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = ReviewRepository.EXPORT_FETCH_SIZE))
+    @Query(RESPONSE_PROJECTION + "WHERE r.id BETWEEN :fromId AND :toId")
+    Stream<RestaurantResponseDTO> streamResponses(Long fromId, Long toId);
+
+    @Query("""
+            SELECT r.id AS id, r.reviewCount AS reviewCount, r.rating AS rating, r.version AS version,
+                   r.stars1 AS stars1, r.stars2 AS stars2, r.stars3 AS stars3, r.stars4 AS stars4, r.stars5 AS stars5
+            FROM Restaurant r WHERE r.id = :id
+            """)
+    Optional<RatingDistribution> findRatingDistribution(Long id);
+
+    @Query("SELECT MIN(r.id) AS minId, MAX(r.id) AS maxId FROM Restaurant r")
+    IdRange findIdRange();
+
+    @Query(value = "SELECT id FROM restaurants WHERE id = ANY(:ids)", nativeQuery = true)
+    Set<Long> findExistingIds(Long[] ids);
+
+    @Modifying
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = RATING_QUERY_SPACE))
+    @Query(value = """
+            UPDATE restaurants r SET
+                review_count = r.review_count + d.cnt,
+                rating_sum = r.rating_sum + d.total,
+                rating = CASE WHEN r.review_count + d.cnt = 0 THEN 0
+                              ELSE ROUND(CAST(r.rating_sum + d.total AS numeric) / (r.review_count + d.cnt), 1) END,
+                stars_1 = r.stars_1 + d.s[1],
+                stars_2 = r.stars_2 + d.s[2],
+                stars_3 = r.stars_3 + d.s[3],
+                stars_4 = r.stars_4 + d.s[4],
+                stars_5 = r.stars_5 + d.s[5],
+                version = r.version + 1
+            FROM (SELECT s, s[1] + s[2] + s[3] + s[4] + s[5] AS cnt, s[1] + 2 * s[2] + 3 * s[3] + 4 * s[4] + 5 * s[5] AS total
+                  FROM (SELECT CAST(:starDeltas AS BIGINT[]) AS s) p) d
+            WHERE r.id = :restaurantId
+            """, nativeQuery = true)
+    int applyRatingDelta(Long restaurantId, Long[] starDeltas);
+
+    // отзывы посетителя удаляются тем же запросом, который вычитает их из агрегатов: вычитается ровно удалённое
+    @Query(value = """
+            WITH deleted AS (
+                DELETE FROM reviews WHERE visitor_id = :visitorId
+                RETURNING restaurant_id, rating
+            )
+            UPDATE restaurants r SET
+                review_count = r.review_count - s.cnt,
+                rating_sum = r.rating_sum - s.total,
+                rating = CASE WHEN r.review_count - s.cnt = 0 THEN 0
+                              ELSE ROUND(CAST(r.rating_sum - s.total AS numeric) / (r.review_count - s.cnt), 1) END,
+                stars_1 = r.stars_1 - s.s1,
+                stars_2 = r.stars_2 - s.s2,
+                stars_3 = r.stars_3 - s.s3,
+                stars_4 = r.stars_4 - s.s4,
+                stars_5 = r.stars_5 - s.s5,
+                version = r.version + 1
+            FROM (SELECT restaurant_id, COUNT(*) AS cnt, SUM(rating) AS total, """ + STAR_COUNTS + """
+                  FROM deleted GROUP BY restaurant_id) s
+            WHERE r.id = s.restaurant_id
+            RETURNING r.id AS "id", r.name AS "name", r.description AS "description",
+                      r.cuisine_type AS "cuisineType", r.avg_check AS "avgCheck", r.rating AS "rating",
+                      r.version AS "version"
+            """, nativeQuery = true)
+    List<RatedRestaurant> deleteVisitorReviews(Long visitorId);
+
+    @Query(value = """
+            UPDATE restaurants r SET
+                review_count = COALESCE(s.cnt, 0),
+                rating_sum = COALESCE(s.total, 0),
+                rating = COALESCE(ROUND(CAST(s.total AS numeric) / s.cnt, 1), 0),
+                """ + STAR_ASSIGNMENTS + """
+                version = r.version + 1
+            FROM restaurants r2
+            LEFT JOIN (SELECT restaurant_id, COUNT(*) AS cnt, SUM(rating) AS total, """ + STAR_COUNTS + """
+                       FROM reviews WHERE restaurant_id = ANY(:ids) GROUP BY restaurant_id) s ON s.restaurant_id = r2.id
+            WHERE r.id = r2.id AND r2.id = ANY(:ids)
+            RETURNING r.id AS "id", r.name AS "name", r.description AS "description",
+                      r.cuisine_type AS "cuisineType", r.avg_check AS "avgCheck", r.rating AS "rating",
+                      r.version AS "version"
+            """, nativeQuery = true)
+    List<RatedRestaurant> recomputeRatingAggregates(Long[] ids);
+
+    @Query(value = """
+            SELECT * FROM (
+                SELECT r.id AS "id", r.name AS "name", r.description AS "description", r.cuisine_type AS "cuisineType",
+                       r.avg_check AS "avgCheck", r.rating AS "rating", r.version AS "version", ts_rank(r.search_vector, q) AS "rank"
+                FROM restaurants r, websearch_to_tsquery('russian', :query) q
+                WHERE r.search_vector @@ q
+            ) hits
+            WHERE "rank" < :afterRank OR ("rank" = :afterRank AND "id" > :afterId)
+            ORDER BY "rank" DESC, "id"
+            LIMIT :limit
+            """, nativeQuery = true)
+    List<RestaurantHit> search(String query, float afterRank, long afterId, int limit);
+
+    interface RatingDistribution {
+        Long getId();
+        long getReviewCount();
+        BigDecimal getRating();
+        Long getVersion();
+        long getStars1();
+        long getStars2();
+        long getStars3();
+        long getStars4();
+        long getStars5();
+
+        default RatingDistributionDTO toResponse() {
+            Map<Integer, Long> stars = new LinkedHashMap<>();
+            stars.put(1, getStars1());
+            stars.put(2, getStars2());
+            stars.put(3, getStars3());
+            stars.put(4, getStars4());
+            stars.put(5, getStars5());
+            return new RatingDistributionDTO(getId(), getReviewCount(), getRating(), stars, getVersion());
+        }
+    }
+
+    interface IdRange {
+        Long getMinId();
+        Long getMaxId();
+    }
+
+    interface RestaurantHit extends RatedRestaurant {
+        Float getRank();
+    }
+
+    interface RatedRestaurant {
+        Long getId();
+        String getName();
+        String getDescription();
+        String getCuisineType();
+        BigDecimal getAvgCheck();
+        BigDecimal getRating();
+        Long getVersion();
+
+        default RestaurantResponseDTO toResponse() {
+            return new RestaurantResponseDTO(getId(), getName(), getDescription(), getCuisineType(), getAvgCheck(), getRating(),
+                    getVersion());
+        }
+    }
 }
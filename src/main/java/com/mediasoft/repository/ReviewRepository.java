@@ -1,22 +1,179 @@
 package com.mediasoft.repository;
 
+import com.mediasoft.dto.ReviewResponseDTO;
 import com.mediasoft.entity.Review;
 import com.mediasoft.entity.ReviewID;
+import com.mediasoft.repository.RestaurantRepository.RatedRestaurant;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.PagingAndSortingRepository;
 
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 
 public interface ReviewRepository extends JpaRepository<Review, ReviewID>, PagingAndSortingRepository<Review, ReviewID> {
 
-    Page<Review> findAllByOrderByRatingAsc(Pageable pageable);
-    Page<Review> findAllByOrderByRatingDesc(Pageable pageable);
+    String RESPONSE_PROJECTION = "SELECT new com.mediasoft.dto.ReviewResponseDTO("
+            + "r.id.restaurantId, r.id.visitorId, r.comment, r.rating, r.version) FROM Review r ";
+
+    // Сколько строк драйвер забирает из серверного курсора за один раз при выгрузке
+    String EXPORT_FETCH_SIZE = "1000";
+
+    @Query(value = RESPONSE_PROJECTION + "ORDER BY r.rating ASC, r.id.restaurantId ASC, r.id.visitorId ASC",
+            countQuery = "SELECT COUNT(r) FROM Review r")
+    Page<ReviewResponseDTO> findAllByOrderByRatingAsc(Pageable pageable);
+
+    @Query(value = RESPONSE_PROJECTION + "ORDER BY r.rating DESC, r.id.restaurantId DESC, r.id.visitorId DESC",
+            countQuery = "SELECT COUNT(r) FROM Review r")
+    Page<ReviewResponseDTO> findAllByOrderByRatingDesc(Pageable pageable);
+
+    @Query(RESPONSE_PROJECTION + "WHERE r.id.restaurantId = :restaurantId AND r.id.visitorId = :visitorId")
+    Optional<ReviewResponseDTO> findResponseById(Long restaurantId, Long visitorId);
+
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = EXPORT_FETCH_SIZE))
+    @Query(RESPONSE_PROJECTION + "WHERE r.id.restaurantId BETWEEN :fromRestaurantId AND :toRestaurantId")
+    Stream<ReviewResponseDTO> streamResponses(Long fromRestaurantId, Long toRestaurantId);
 
     Optional<Review> findByVisitorIdAndRestaurantId(Long visitorId, Long restaurantId);
-    List<Review> findByVisitorId(Long visitorId);
-    List<Review> findByRestaurantId(Long restaurantId);
+
+    @Query(value = "DELETE FROM reviews WHERE visitor_id = :visitorId RETURNING restaurant_id", nativeQuery = true)
+    List<Long> deleteByVisitorId(Long visitorId);
+
+    @Query(RESPONSE_PROJECTION + """
+            WHERE r.id.restaurantId > :restaurantId
+               OR (r.id.restaurantId = :restaurantId AND r.id.visitorId > :visitorId)
+            ORDER BY r.id.restaurantId, r.id.visitorId
+            """)
+    List<ReviewResponseDTO> findResponsesAfter(Long restaurantId, Long visitorId, Limit limit);
+
+    // ленты отзывов ресторана и посетителя: ключ страницы (rating, id второй стороны) сравнивается как строка,
+    // поэтому Postgres начинает чтение idx_reviews_restaurant_rating / idx_reviews_visitor_rating сразу с курсора
+    @Query(value = """
+            SELECT restaurant_id AS "restaurantId", visitor_id AS "visitorId", comment AS "comment",
+                   rating AS "rating", version AS "version"
+            FROM reviews
+            WHERE restaurant_id = :restaurantId AND (rating, visitor_id) > (:afterRating, :afterVisitorId)
+            ORDER BY rating, visitor_id
+            LIMIT :limit
+            """, nativeQuery = true)
+    List<ReviewRow> findRestaurantFeedAsc(Long restaurantId, long afterRating, long afterVisitorId, int limit);
+
+    @Query(value = """
+            SELECT restaurant_id AS "restaurantId", visitor_id AS "visitorId", comment AS "comment",
+                   rating AS "rating", version AS "version"
+            FROM reviews
+            WHERE restaurant_id = :restaurantId AND (rating, visitor_id) < (:afterRating, :afterVisitorId)
+            ORDER BY rating DESC, visitor_id DESC
+            LIMIT :limit
+            """, nativeQuery = true)
+    List<ReviewRow> findRestaurantFeedDesc(Long restaurantId, long afterRating, long afterVisitorId, int limit);
+
+    @Query(value = """
+            SELECT restaurant_id AS "restaurantId", visitor_id AS "visitorId", comment AS "comment",
+                   rating AS "rating", version AS "version"
+            FROM reviews
+            WHERE visitor_id = :visitorId AND (rating, restaurant_id) > (:afterRating, :afterRestaurantId)
+            ORDER BY rating, restaurant_id
+            LIMIT :limit
+            """, nativeQuery = true)
+    List<ReviewRow> findVisitorFeedAsc(Long visitorId, long afterRating, long afterRestaurantId, int limit);
+
+    @Query(value = """
+            SELECT restaurant_id AS "restaurantId", visitor_id AS "visitorId", comment AS "comment",
+                   rating AS "rating", version AS "version"
+            FROM reviews
+            WHERE visitor_id = :visitorId AND (rating, restaurant_id) < (:afterRating, :afterRestaurantId)
+            ORDER BY rating DESC, restaurant_id DESC
+            LIMIT :limit
+            """, nativeQuery = true)
+    List<ReviewRow> findVisitorFeedDesc(Long visitorId, long afterRating, long afterRestaurantId, int limit);
+
+    @Query(value = """
+            SELECT r.restaurant_id AS "restaurantId", r.visitor_id AS "visitorId" FROM reviews r
+            JOIN unnest(:restaurantIds, :visitorIds) AS k(restaurant_id, visitor_id)
+              ON r.restaurant_id = k.restaurant_id AND r.visitor_id = k.visitor_id
+            """, nativeQuery = true)
+    List<ReviewKey> findExistingKeys(Long[] restaurantIds, Long[] visitorIds);
+
+    // вставка отзыва и пересчёт агрегатов ресторана одним запросом; существование ресторана и посетителя
+    // проверяют внешние ключи, повтор отзыва — первичный ключ
+    @Query(value = """
+            WITH inserted AS (
+                INSERT INTO reviews (restaurant_id, visitor_id, rating, comment)
+                VALUES (:restaurantId, :visitorId, :rating, :comment)
+                RETURNING restaurant_id, rating
+            )
+            UPDATE restaurants r SET
+                review_count = r.review_count + 1,
+                rating_sum = r.rating_sum + i.rating,
+                rating = ROUND(CAST(r.rating_sum + i.rating AS numeric) / (r.review_count + 1), 1),
+                stars_1 = r.stars_1 + CAST(i.rating = 1 AS INTEGER),
+                stars_2 = r.stars_2 + CAST(i.rating = 2 AS INTEGER),
+                stars_3 = r.stars_3 + CAST(i.rating = 3 AS INTEGER),
+                stars_4 = r.stars_4 + CAST(i.rating = 4 AS INTEGER),
+                stars_5 = r.stars_5 + CAST(i.rating = 5 AS INTEGER),
+                version = r.version + 1
+            FROM inserted i
+            WHERE r.id = i.restaurant_id
+            RETURNING r.id AS "id", r.name AS "name", r.description AS "description",
+                      r.cuisine_type AS "cuisineType", r.avg_check AS "avgCheck", r.rating AS "rating",
+                      r.version AS "version"
+            """, nativeQuery = true)
+    RatedRestaurant insertAndApplyRating(Long restaurantId, Long visitorId, int rating, String comment);
+
+    // кэшируемых сущностей запрос не касается, поэтому кэш второго уровня не сбрасывается
+    @Modifying
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = "reviews"))
+    @Query(value = """
+            INSERT INTO reviews (restaurant_id, visitor_id, rating, comment)
+            VALUES (:restaurantId, :visitorId, :rating, :comment)
+            """, nativeQuery = true)
+    int insertReview(Long restaurantId, Long visitorId, int rating, String comment);
+
+    // restaurantId = 0 — поиск по всем ресторанам
+    @Query(value = """
+            SELECT * FROM (
+                SELECT r.restaurant_id AS "restaurantId", r.visitor_id AS "visitorId", r.comment AS "comment",
+                       r.rating AS "rating", r.version AS "version", ts_rank(r.search_vector, q) AS "rank"
+                FROM reviews r, websearch_to_tsquery('russian', :query) q
+                WHERE r.search_vector @@ q AND (:restaurantId = 0 OR r.restaurant_id = :restaurantId)
+            ) hits
+            WHERE "rank" < :afterRank
+               OR ("rank" = :afterRank AND ("restaurantId" > :afterRestaurantId
+                   OR ("restaurantId" = :afterRestaurantId AND "visitorId" > :afterVisitorId)))
+            ORDER BY "rank" DESC, "restaurantId", "visitorId"
+            LIMIT :limit
+            """, nativeQuery = true)
+    List<ReviewHit> search(String query, long restaurantId, float afterRank, long afterRestaurantId,
+                           long afterVisitorId, int limit);
+
+    interface ReviewHit extends ReviewRow {
+        Float getRank();
+    }
+
+    interface ReviewRow {
+        Long getRestaurantId();
+        Long getVisitorId();
+        String getComment();
+        Integer getRating();
+        Long getVersion();
+
+        default ReviewResponseDTO toResponse() {
+            return new ReviewResponseDTO(getRestaurantId(), getVisitorId(), getComment(), getRating(), getVersion());
+        }
+    }
+
+    interface ReviewKey {
+        Long getRestaurantId();
+        Long getVisitorId();
+    }
 }
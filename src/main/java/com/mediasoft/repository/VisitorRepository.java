@@ -1,11 +1,41 @@
 package com.mediasoft.repository;
 
+import com.mediasoft.dto.VisitorResponseDTO;
 import com.mediasoft.entity.Visitor;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
+import java.util.Optional;
+import java.util.Set;
 
 @Repository
 public interface VisitorRepository extends JpaRepository<Visitor, Long> {
+    String RESPONSE_PROJECTION = "SELECT new com.mediasoft.dto.VisitorResponseDTO("
+            + "v.id, v.name, v.age, CAST(v.sex AS String), v.version) FROM Visitor v ";
+
+    @Query(RESPONSE_PROJECTION + "WHERE v.id > :id ORDER BY v.id")
+    List<VisitorResponseDTO> findResponsesAfter(Long id, Limit limit);
+
+    @Query(RESPONSE_PROJECTION + "WHERE v.id = :id")
+    Optional<VisitorResponseDTO> findResponseById(Long id);
+
+    @Query(value = "SELECT id FROM visitors WHERE id = ANY(:ids)", nativeQuery = true)
+    Set<Long> findExistingIds(Long[] ids);
+
+    // FOR UPDATE несовместим с FOR KEY SHARE, который берёт вставка отзыва при проверке внешнего ключа
+    @Query(value = "SELECT id FROM visitors WHERE id = :id FOR UPDATE", nativeQuery = true)
+    Optional<Long> lockById(Long id);
+
+    // отзывы к этому моменту уже удалены, поэтому каскад сущности не нужен
+    @Modifying
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = "visitors"))
+    @Query(value = "DELETE FROM visitors WHERE id = :id", nativeQuery = true)
+    int deleteRow(Long id);
 }
@@ -0,0 +1,10 @@
+package com.mediasoft.service;
+
+import com.mediasoft.export.ExportFormat;
+
+import java.io.OutputStream;
+
+public interface ExportService {
+    void exportReviews(ExportFormat format, int workers, OutputStream out);
+    void exportRestaurants(ExportFormat format, int workers, OutputStream out);
+}
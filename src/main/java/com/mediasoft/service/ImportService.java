@@ -0,0 +1,11 @@
+package com.mediasoft.service;
+
+import com.mediasoft.dto.ImportResultDTO;
+
+import java.io.InputStream;
+
+public interface ImportService {
+    ImportResultDTO importVisitors(InputStream csv);
+    ImportResultDTO importRestaurants(InputStream csv);
+    ImportResultDTO importReviews(InputStream csv);
+}
@@ -1,16 +1,26 @@
 package com.mediasoft.service;
 
+import com.mediasoft.dto.BulkResultDTO;
+import com.mediasoft.dto.CursorPageDTO;
+import com.mediasoft.dto.RatingDistributionDTO;
+import com.mediasoft.dto.RestaurantFacetsDTO;
 import com.mediasoft.dto.RestaurantRequestDTO;
 import com.mediasoft.dto.RestaurantResponseDTO;
 
+import java.math.BigDecimal;
 import java.util.List;
 
 public interface RestaurantService {
     RestaurantResponseDTO create(RestaurantRequestDTO restaurantRequestDTO);
-    List<RestaurantResponseDTO> getAll();
+    BulkResultDTO createAll(List<RestaurantRequestDTO> restaurantRequestDTOs);
+    CursorPageDTO<RestaurantResponseDTO> getAll(String cursor, int size);
     RestaurantResponseDTO getById(Long id);
+    RatingDistributionDTO getRatingDistribution(Long id);
     void delete(Long id);
     RestaurantResponseDTO update(Long id, RestaurantRequestDTO restaurantRequestDTO);
-    List<RestaurantResponseDTO> getRestaurantsWithMinRating(double rating);
-    List<RestaurantResponseDTO> getRestaurantsWithMinRatingJPQL(double rating);
+    CursorPageDTO<RestaurantResponseDTO> getRestaurantsWithMinRating(BigDecimal rating, String cursor, int size);
+    List<RestaurantResponseDTO> getAllRestaurantsWithMinRating(BigDecimal rating);
+    List<RestaurantResponseDTO> getLeaderboard(String cuisineType, int limit);
+    RestaurantFacetsDTO filter(List<String> cuisineTypes, BigDecimal minAvgCheck, BigDecimal maxAvgCheck,
+                               BigDecimal minRating, int limit);
 }
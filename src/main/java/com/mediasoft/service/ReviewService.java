@@ -1,5 +1,7 @@
 package com.mediasoft.service;
 
+import com.mediasoft.dto.BulkResultDTO;
+import com.mediasoft.dto.CursorPageDTO;
 import com.mediasoft.dto.ReviewRequestDTO;
 import com.mediasoft.dto.ReviewResponseDTO;
 import com.mediasoft.dto.ReviewUpdateRequestDTO;
@@ -10,7 +12,10 @@ import java.util.List;
 
 public interface ReviewService {
     ReviewResponseDTO create(ReviewRequestDTO reviewRequestDTO);
-    List<ReviewResponseDTO> getAll();
+    BulkResultDTO createAll(List<ReviewRequestDTO> reviewRequestDTOs);
+    CursorPageDTO<ReviewResponseDTO> getAll(String cursor, int size);
+    CursorPageDTO<ReviewResponseDTO> getByRestaurant(Long restaurantId, String sort, String cursor, int size);
+    CursorPageDTO<ReviewResponseDTO> getByVisitor(Long visitorId, String sort, String cursor, int size);
     ReviewResponseDTO getById(Long visitorId, Long restaurantId);
     ReviewResponseDTO update(Long visitorId, Long restaurantId, ReviewUpdateRequestDTO reviewRequestDTO);
     void delete(Long visitorId, Long restaurantId);
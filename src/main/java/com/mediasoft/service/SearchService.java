@@ -0,0 +1,10 @@
+package com.mediasoft.service;
+
+import com.mediasoft.dto.CursorPageDTO;
+import com.mediasoft.dto.RestaurantResponseDTO;
+import com.mediasoft.dto.ReviewResponseDTO;
+
+public interface SearchService {
+    CursorPageDTO<RestaurantResponseDTO> searchRestaurants(String query, String cursor, int size);
+    CursorPageDTO<ReviewResponseDTO> searchReviews(String query, Long restaurantId, String cursor, int size);
+}
@@ -1,5 +1,7 @@
 package com.mediasoft.service;
 
+import com.mediasoft.dto.BulkResultDTO;
+import com.mediasoft.dto.CursorPageDTO;
 import com.mediasoft.dto.VisitorRequestDTO;
 import com.mediasoft.dto.VisitorResponseDTO;
 
@@ -7,7 +9,8 @@ import java.util.List;
 
 public interface VisitorService {
     VisitorResponseDTO create(VisitorRequestDTO visitorRequestDTO);
-    List<VisitorResponseDTO> getAll();
+    BulkResultDTO createAll(List<VisitorRequestDTO> visitorRequestDTOs);
+    CursorPageDTO<VisitorResponseDTO> getAll(String cursor, int size);
     VisitorResponseDTO getById(Long id);
     void delete(Long id);
     VisitorResponseDTO update(Long id, VisitorRequestDTO visitorRequestDTO);
@@ -0,0 +1,240 @@
+package com.mediasoft.service.impl;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.mediasoft.config.ExportConfig;
+import com.mediasoft.dto.RestaurantResponseDTO;
+import com.mediasoft.dto.ReviewResponseDTO;
+import com.mediasoft.export.CsvRow;
+import com.mediasoft.export.ExportFormat;
+import com.mediasoft.repository.RestaurantRepository;
+import com.mediasoft.repository.RestaurantRepository.IdRange;
+import com.mediasoft.repository.ReviewRepository;
+import io.micrometer.core.annotation.Timed;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.http.HttpStatus;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+// Выгрузка читает таблицу серверным курсором (fetch size задан в репозитории) и пишет строки
+// в ответ кусками по CHUNK_BYTES, поэтому память не зависит от размера таблицы. Диапазон id ресторанов
+// можно поделить между потоками общего пула: у каждого своя транзакция и свой курсор, порядок строк не сохраняется.
+// Выгрузка видит один снимок базы: транзакция REPEATABLE READ, а потоки импортируют снимок координатора
+// (pg_export_snapshot), поэтому строки из коммитов, прошедших во время выгрузки, в неё не попадают
+@Slf4j
+@Service
+@Timed("app.service")
+public class ExportService implements com.mediasoft.service.ExportService {
+    private static final int CHUNK_BYTES = 64 * 1024;
+
+    private static final List<String> REVIEW_COLUMNS = List.of("restaurantId", "visitorId", "rating", "comment");
+    private static final List<String> RESTAURANT_COLUMNS = List.of("id", "name", "description", "cuisineType", "avgCheck", "rating");
+
+    private final RestaurantRepository restaurantRepository;
+    private final ReviewRepository reviewRepository;
+    private final ObjectWriter objectWriter;
+    private final JdbcTemplate jdbcTemplate;
+    private final AsyncTaskExecutor exportExecutor;
+    private final TransactionTemplate readOnlySnapshot;
+    private final TransactionTemplate sharedSnapshot;
+    private final int maxWorkers;
+    private final Semaphore connections;
+
+    public ExportService(RestaurantRepository restaurantRepository,
+                         ReviewRepository reviewRepository,
+                         ObjectMapper objectMapper,
+                         JdbcTemplate jdbcTemplate,
+                         @Qualifier(ExportConfig.EXPORT_EXECUTOR) AsyncTaskExecutor exportExecutor,
+                         PlatformTransactionManager transactionManager,
+                         @Value("${app.export.max-workers}") int maxWorkers,
+                         @Value("${app.export.max-connections}") int maxConnections) {
+        this.restaurantRepository = restaurantRepository;
+        this.reviewRepository = reviewRepository;
+        this.objectWriter = objectMapper.writer();
+        this.jdbcTemplate = jdbcTemplate;
+        this.exportExecutor = exportExecutor;
+        this.readOnlySnapshot = new TransactionTemplate(transactionManager);
+        this.readOnlySnapshot.setIsolationLevel(TransactionDefinition.ISOLATION_REPEATABLE_READ);
+        this.readOnlySnapshot.setReadOnly(true);
+        // не read-only, чтобы попасть на primary: снимок импортируется только на том же сервере,
+        // а read-only транзакции распределяются по репликам
+        this.sharedSnapshot = new TransactionTemplate(transactionManager);
+        this.sharedSnapshot.setIsolationLevel(TransactionDefinition.ISOLATION_REPEATABLE_READ);
+        this.maxWorkers = Math.min(maxWorkers, maxConnections - 1);
+        this.connections = new Semaphore(maxConnections);
+    }
+
+    @Override
+    public void exportReviews(ExportFormat format, int workers, OutputStream out) {
+        export(format, workers, out, REVIEW_COLUMNS, reviewRepository::streamResponses,
+                review -> Arrays.asList(review.getRestaurantId(), review.getVisitorId(), review.getRating(), review.getComment()));
+    }
+
+    @Override
+    public void exportRestaurants(ExportFormat format, int workers, OutputStream out) {
+        export(format, workers, out, RESTAURANT_COLUMNS, restaurantRepository::streamResponses,
+                restaurant -> Arrays.asList(restaurant.getId(), restaurant.getName(), restaurant.getDescription(),
+                        restaurant.getCuisineType(), restaurant.getAvgCheck(), restaurant.getRating()));
+    }
+
+    private <T> void export(ExportFormat format, int workers, OutputStream out, List<String> columns,
+                            BiFunction<Long, Long, Stream<T>> source, Function<T, List<?>> csvValues) {
+        int parts = Math.max(1, Math.min(workers, maxWorkers));
+        // соединение координатора плюс по одному на поток; без свободных соединений выгрузка не ждёт в очереди
+        int permits = parts == 1 ? 1 : parts + 1;
+        if (!connections.tryAcquire(permits)) {
+            throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "Слишком много одновременных выгрузок");
+        }
+        try {
+            exportRows(format, parts, out, columns, source, csvValues);
+        } finally {
+            connections.release(permits);
+        }
+    }
+
+    private <T> void exportRows(ExportFormat format, int parts, OutputStream out, List<String> columns,
+                            BiFunction<Long, Long, Stream<T>> source, Function<T, List<?>> csvValues) {
+        if (format == ExportFormat.CSV) {
+            write(out, CsvRow.of(columns).getBytes(StandardCharsets.UTF_8));
+        }
+        Function<T, byte[]> encoder = format == ExportFormat.CSV
+                ? row -> CsvRow.of(csvValues.apply(row)).getBytes(StandardCharsets.UTF_8)
+                : this::ndjsonLine;
+        (parts == 1 ? readOnlySnapshot : sharedSnapshot).executeWithoutResult(status -> {
+            IdRange range = restaurantRepository.findIdRange();
+            if (range.getMinId() == null) {
+                return;
+            }
+            List<long[]> slices = split(range.getMinId(), range.getMaxId(), parts);
+            if (slices.size() == 1) {
+                exportSlice(slices.get(0), source, encoder, out);
+            } else {
+                // координатор держит транзакцию открытой, пока потоки не импортируют и не дочитают снимок
+                String snapshot = jdbcTemplate.queryForObject("SELECT pg_export_snapshot()", String.class);
+                exportInParallel(slices, snapshot, source, encoder, out);
+            }
+        });
+        flush(out);
+    }
+
+    private <T> void exportInParallel(List<long[]> slices, String snapshot, BiFunction<Long, Long, Stream<T>> source,
+                                      Function<T, byte[]> encoder, OutputStream out) {
+        List<Future<?>> futures = new ArrayList<>();
+        try {
+            for (long[] slice : slices) {
+                futures.add(exportExecutor.submit(() -> sharedSnapshot.executeWithoutResult(status -> {
+                    // должно быть первым запросом транзакции
+                    jdbcTemplate.execute("SET TRANSACTION SNAPSHOT '" + snapshot + "'");
+                    exportSlice(slice, source, encoder, out);
+                })));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Выгрузка прервана", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new IllegalStateException(e.getCause());
+        } finally {
+            // при ошибке одного потока остальные прерываются, у завершённых cancel ничего не делает
+            futures.forEach(future -> future.cancel(true));
+        }
+    }
+
+    // вызывается внутри транзакции со снимком выгрузки
+    private <T> void exportSlice(long[] slice, BiFunction<Long, Long, Stream<T>> source,
+                                 Function<T, byte[]> encoder, OutputStream out) {
+        ByteArrayOutputStream chunk = new ByteArrayOutputStream(CHUNK_BYTES + 1024);
+        try (Stream<T> rows = source.apply(slice[0], slice[1])) {
+            rows.forEach(row -> {
+                chunk.writeBytes(encoder.apply(row));
+                if (chunk.size() >= CHUNK_BYTES) {
+                    write(out, chunk);
+                }
+            });
+        }
+        write(out, chunk);
+        log.debug("Выгружен диапазон id {}..{}", slice[0], slice[1]);
+    }
+
+    private byte[] ndjsonLine(Object row) {
+        try {
+            byte[] json = objectWriter.writeValueAsBytes(row);
+            byte[] line = new byte[json.length + 1];
+            System.arraycopy(json, 0, line, 0, json.length);
+            line[json.length] = '\n';
+            return line;
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    // Потоки пишут в общий ответ целыми кусками, поэтому строки разных потоков не перемешиваются
+    private static void write(OutputStream out, ByteArrayOutputStream chunk) {
+        synchronized (out) {
+            try {
+                chunk.writeTo(out);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+        chunk.reset();
+    }
+
+    private static void write(OutputStream out, byte[] bytes) {
+        synchronized (out) {
+            try {
+                out.write(bytes);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+
+    private static void flush(OutputStream out) {
+        try {
+            out.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static List<long[]> split(long minId, long maxId, int parts) {
+        long span = maxId - minId + 1;
+        int count = (int) Math.min(parts, span);
+        List<long[]> slices = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            long from = minId + span * i / count;
+            long to = minId + span * (i + 1) / count - 1;
+            slices.add(new long[]{from, to});
+        }
+        return slices;
+    }
+}
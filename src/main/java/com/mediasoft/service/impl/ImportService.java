@@ -0,0 +1,233 @@
+package com.mediasoft.service.impl;
+
+import com.mediasoft.config.CacheConfig;
+import com.mediasoft.dto.ImportErrorDTO;
+import com.mediasoft.dto.ImportResultDTO;
+import com.mediasoft.event.ChangeMarkers;
+import com.mediasoft.event.ChangeMarkers.Resource;
+import com.mediasoft.event.SecondLevelCacheEvictor;
+import com.mediasoft.entity.CuisineType;
+import com.mediasoft.entity.Sex;
+import com.mediasoft.index.RestaurantFacetIndex;
+import com.mediasoft.index.RestaurantLeaderboard;
+import com.mediasoft.repository.RestaurantRepository;
+import io.micrometer.core.annotation.Timed;
+import org.postgresql.PGConnection;
+import org.springframework.cache.CacheManager;
+import org.springframework.http.HttpStatus;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceUtils;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.web.server.ResponseStatusException;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+// Файл целиком уходит через COPY во временную таблицу с текстовыми столбцами, затем одним запросом
+// проверяются значения и одним INSERT ... SELECT переносятся корректные строки. Всё в одной транзакции
+@Service
+@Timed("app.service")
+public class ImportService implements com.mediasoft.service.ImportService {
+    private static final int MAX_REPORTED_ERRORS = 100;
+
+    // INSERT ... SELECT подставляется в %s, запрос возвращает число вставленных строк
+    private static final String COUNT_INSERTED = "WITH inserted AS (%s RETURNING 1) SELECT COUNT(*) FROM inserted";
+
+    // агрегаты меняются на дельты только от действительно вставленных строк: UPDATE блокирует строки ресторанов
+    // и прибавляет к их текущим значениям, поэтому параллельные отзывы через API не теряются
+    private static final String APPLY_REVIEW_DELTAS = """
+            WITH inserted AS (%s RETURNING restaurant_id, rating),
+            applied AS (
+                UPDATE restaurants r SET
+                    review_count = r.review_count + s.cnt,
+                    rating_sum = r.rating_sum + s.total,
+                    rating = ROUND(CAST(r.rating_sum + s.total AS numeric) / (r.review_count + s.cnt), 1),
+                    stars_1 = r.stars_1 + s.s1,
+                    stars_2 = r.stars_2 + s.s2,
+                    stars_3 = r.stars_3 + s.s3,
+                    stars_4 = r.stars_4 + s.s4,
+                    stars_5 = r.stars_5 + s.s5,
+                    version = r.version + 1
+                FROM (SELECT restaurant_id, COUNT(*) AS cnt, SUM(rating) AS total, """ + RestaurantRepository.STAR_COUNTS + """
+                      FROM inserted GROUP BY restaurant_id) s
+                WHERE r.id = s.restaurant_id
+            )
+            SELECT COUNT(*) FROM inserted
+            """;
+
+    private static final Target VISITORS = new Target("import_visitors", "id, name, age, sex", """
+            CASE
+                WHEN s.id IS NULL OR s.id !~ '^[0-9]{1,18}$' THEN 'Некорректный id: ' || COALESCE(s.id, '')
+                WHEN s.name IS NULL OR btrim(s.name) = '' THEN 'Имя не может быть пустым'
+                WHEN length(s.name) > 255 THEN 'Имя длиннее 255 символов'
+                WHEN s.age IS NULL OR s.age !~ '^[0-9]{1,3}$' THEN 'Некорректный возраст: ' || COALESCE(s.age, '')
+                WHEN s.sex IS NULL OR s.sex NOT IN (%s) THEN 'Неизвестный пол: ' || COALESCE(s.sex, '')
+            END""".formatted(sqlList(Sex.values())), """
+            INSERT INTO visitors (id, name, age, sex)
+            SELECT s.id::bigint, s.name, s.age::integer, s.sex
+            """, COUNT_INSERTED);
+
+    private static final Target RESTAURANTS = new Target("import_restaurants", "id, name, description, cuisine_type, avg_check", """
+            CASE
+                WHEN s.id IS NULL OR s.id !~ '^[0-9]{1,18}$' THEN 'Некорректный id: ' || COALESCE(s.id, '')
+                WHEN s.name IS NULL OR btrim(s.name) = '' THEN 'Название ресторана не может быть пустым'
+                WHEN length(s.name) > 255 THEN 'Название длиннее 255 символов'
+                WHEN length(s.description) > 255 THEN 'Описание длиннее 255 символов'
+                WHEN s.cuisine_type IS NULL OR s.cuisine_type NOT IN (%s) THEN 'Неизвестный тип кухни: ' || COALESCE(s.cuisine_type, '')
+                WHEN s.avg_check IS NULL OR s.avg_check !~ '^[0-9]{1,30}(\\.[0-9]{1,2})?$' OR s.avg_check::numeric = 0
+                    THEN 'Средний счет должен быть больше нуля'
+            END""".formatted(sqlList(CuisineType.values())), """
+            INSERT INTO restaurants (id, name, description, cuisine_type, avg_check, rating)
+            SELECT s.id::bigint, s.name, COALESCE(s.description, ''), s.cuisine_type, s.avg_check::numeric, 0
+            """, COUNT_INSERTED);
+
+    private static final Target REVIEWS = new Target("import_reviews", "restaurant_id, visitor_id, rating, comment", """
+            CASE
+                WHEN s.restaurant_id IS NULL OR s.restaurant_id !~ '^[0-9]{1,18}$'
+                    THEN 'Некорректный id ресторана: ' || COALESCE(s.restaurant_id, '')
+                WHEN s.visitor_id IS NULL OR s.visitor_id !~ '^[0-9]{1,18}$'
+                    THEN 'Некорректный id посетителя: ' || COALESCE(s.visitor_id, '')
+                WHEN s.rating IS NULL OR s.rating !~ '^[1-5]$' THEN 'Рейтинг должен быть от 1 до 5'
+                WHEN NOT EXISTS (SELECT 1 FROM restaurants r WHERE r.id = s.restaurant_id::bigint)
+                    THEN 'Ресторан не найден: ' || s.restaurant_id
+                WHEN NOT EXISTS (SELECT 1 FROM visitors v WHERE v.id = s.visitor_id::bigint)
+                    THEN 'Посетитель не найден: ' || s.visitor_id
+            END""", """
+            INSERT INTO reviews (restaurant_id, visitor_id, rating, comment)
+            SELECT s.restaurant_id::bigint, s.visitor_id::bigint, s.rating::integer, s.comment
+            """, APPLY_REVIEW_DELTAS);
+
+    private final JdbcTemplate jdbcTemplate;
+    private final DataSource dataSource;
+    private final RestaurantLeaderboard restaurantLeaderboard;
+    private final RestaurantFacetIndex restaurantFacetIndex;
+    private final CacheManager cacheManager;
+    private final ChangeMarkers changeMarkers;
+    private final SecondLevelCacheEvictor secondLevelCacheEvictor;
+
+    public ImportService(JdbcTemplate jdbcTemplate,
+                         DataSource dataSource,
+                         RestaurantLeaderboard restaurantLeaderboard,
+                         RestaurantFacetIndex restaurantFacetIndex,
+                         CacheManager cacheManager,
+                         ChangeMarkers changeMarkers,
+                         SecondLevelCacheEvictor secondLevelCacheEvictor) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.dataSource = dataSource;
+        this.restaurantLeaderboard = restaurantLeaderboard;
+        this.restaurantFacetIndex = restaurantFacetIndex;
+        this.cacheManager = cacheManager;
+        this.changeMarkers = changeMarkers;
+        this.secondLevelCacheEvictor = secondLevelCacheEvictor;
+    }
+
+    @Override
+    @Transactional
+    public ImportResultDTO importVisitors(InputStream csv) {
+        ImportResultDTO result = load(VISITORS, csv);
+        advanceSequence("visitors");
+        changeMarkers.touch(Resource.VISITORS);
+        return result;
+    }
+
+    @Override
+    @Transactional
+    public ImportResultDTO importRestaurants(InputStream csv) {
+        ImportResultDTO result = load(RESTAURANTS, csv);
+        advanceSequence("restaurants");
+        refreshRestaurantViews();
+        return result;
+    }
+
+    // агрегаты рейтинга обновляются тем же запросом, что вставляет отзывы (APPLY_REVIEW_DELTAS)
+    @Override
+    @Transactional
+    public ImportResultDTO importReviews(InputStream csv) {
+        ImportResultDTO result = load(REVIEWS, csv);
+        changeMarkers.touch(Resource.REVIEWS);
+        if (result.getImported() > 0) {
+            refreshRestaurantViews();
+        }
+        return result;
+    }
+
+    private ImportResultDTO load(Target target, InputStream csv) {
+        jdbcTemplate.execute("CREATE TEMP TABLE " + target.staging()
+                + " (line BIGINT GENERATED ALWAYS AS IDENTITY, " + target.columns().replace(",", " TEXT,") + " TEXT) ON COMMIT DROP");
+        long total = copy("COPY " + target.staging() + " (" + target.columns() + ") FROM STDIN WITH (FORMAT csv, HEADER true)", csv);
+
+        List<ImportErrorDTO> errors = new ArrayList<>();
+        long[] rejected = {0L};
+        // номер строки в файле на единицу больше из-за заголовка
+        jdbcTemplate.query("""
+                SELECT line + 1 AS line, error, COUNT(*) OVER () AS rejected
+                FROM (SELECT s.line, %s AS error FROM %s s) checked
+                WHERE error IS NOT NULL
+                ORDER BY line
+                LIMIT %d
+                """.formatted(target.error(), target.staging(), MAX_REPORTED_ERRORS), rs -> {
+            rejected[0] = rs.getLong("rejected");
+            errors.add(new ImportErrorDTO(rs.getLong("line"), rs.getString("error")));
+        });
+
+        String insert = target.insert()
+                + "FROM " + target.staging() + " s WHERE (" + target.error() + ") IS NULL ON CONFLICT DO NOTHING";
+        long imported = jdbcTemplate.queryForObject(target.apply().formatted(insert), Long.class);
+        return new ImportResultDTO(total, imported, rejected[0], total - rejected[0] - imported, errors);
+    }
+
+    private long copy(String sql, InputStream csv) {
+        Connection connection = DataSourceUtils.getConnection(dataSource);
+        try {
+            return connection.unwrap(PGConnection.class).getCopyAPI().copyIn(sql, csv);
+        } catch (SQLException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Некорректный CSV: " + e.getMessage(), e);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            DataSourceUtils.releaseConnection(connection, dataSource);
+        }
+    }
+
+    // ключи приходят из файла, поэтому последовательность Hibernate сдвигается за max(id), как в V1
+    private void advanceSequence(String table) {
+        jdbcTemplate.queryForObject("SELECT setval('%1$s_seq', GREATEST((SELECT COALESCE(MAX(id), 0) FROM %1$s), (SELECT last_value FROM %1$s_seq)))"
+                .formatted(table), Long.class);
+    }
+
+    // кэш очищается после коммита (TransactionAwareCacheManagerProxy), индексы перечитываются тоже после коммита
+    private void refreshRestaurantViews() {
+        cacheManager.getCache(CacheConfig.RESTAURANTS).clear();
+        changeMarkers.touch(Resource.RESTAURANTS);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                secondLevelCacheEvictor.evictAll();
+                restaurantLeaderboard.rebuild();
+                restaurantFacetIndex.rebuild();
+            }
+        });
+    }
+
+    private static String sqlList(Enum<?>[] values) {
+        return Arrays.stream(values)
+                .map(value -> "'" + value.name() + "'")
+                .collect(Collectors.joining(", "));
+    }
+
+    // error — выражение над строкой s временной таблицы: текст ошибки или NULL, если строка корректна;
+    // apply — запрос вокруг INSERT ... SELECT, возвращающий число вставленных строк
+    private record Target(String staging, String columns, String error, String insert, String apply) {
+    }
+}
@@ -1,69 +1,215 @@
 package com.mediasoft.service.impl;
 
+import com.mediasoft.config.CacheConfig;
+import com.mediasoft.dto.BulkItemResultDTO;
+import com.mediasoft.dto.BulkResultDTO;
+import com.mediasoft.dto.CursorPageDTO;
+import com.mediasoft.dto.RatingDistributionDTO;
+import com.mediasoft.dto.RestaurantFacetsDTO;
 import com.mediasoft.dto.RestaurantRequestDTO;
 import com.mediasoft.dto.RestaurantResponseDTO;
+import com.mediasoft.entity.CuisineType;
 import com.mediasoft.entity.Restaurant;
+import com.mediasoft.event.RestaurantEventPublisher;
+import com.mediasoft.index.RestaurantFacetIndex;
+import com.mediasoft.index.RestaurantLeaderboard;
 import com.mediasoft.mapper.RestaurantMapper;
 import com.mediasoft.repository.RestaurantRepository;
+import com.mediasoft.util.BulkResults;
+import com.mediasoft.util.CursorCodec;
+import io.micrometer.core.annotation.Timed;
+import jakarta.persistence.CacheRetrieveMode;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.validation.Validator;
 import lombok.RequiredArgsConstructor;
+import org.hibernate.jpa.SpecHints;
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.data.domain.Limit;
+import org.springframework.http.HttpStatus;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.server.ResponseStatusException;
 
 import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.EnumSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 @Service
 @RequiredArgsConstructor
+@Timed("app.service")
 public class RestaurantService implements com.mediasoft.service.RestaurantService {
+    private static final int UPDATE_ATTEMPTS = 3;
+    private static final int LEGACY_MIN_RATING_LIMIT = 1000;
+    private static final Map<String, Object> BYPASS_CACHE = Map.of(SpecHints.HINT_SPEC_CACHE_RETRIEVE_MODE, CacheRetrieveMode.BYPASS);
+
     private final RestaurantRepository restaurantRepository;
     private final RestaurantMapper restaurantMapper;
+    private final Validator validator;
+    private final RestaurantEventPublisher restaurantEventPublisher;
+    private final RestaurantLeaderboard restaurantLeaderboard;
+    private final RestaurantFacetIndex restaurantFacetIndex;
+    private final TransactionTemplate transactionTemplate;
+
+    @PersistenceContext
+    private EntityManager entityManager;
 
 
     @Override
     public RestaurantResponseDTO create(RestaurantRequestDTO restaurantRequestDTO) {
         Restaurant restaurant = restaurantMapper.toRestaurant(restaurantRequestDTO);
         restaurant.setRating(BigDecimal.ZERO);
-        return restaurantMapper.toRestaurantResponseDTO(restaurantRepository.save(restaurant));
+        RestaurantResponseDTO created = restaurantMapper.toRestaurantResponseDTO(restaurantRepository.save(restaurant));
+        restaurantEventPublisher.changed(created);
+        return created;
     }
 
     @Override
-    public List<RestaurantResponseDTO> getAll() {
-        return restaurantRepository.findAll().stream()
-                .map(restaurantMapper::toRestaurantResponseDTO)
-                .toList();
+    @Transactional
+    public BulkResultDTO createAll(List<RestaurantRequestDTO> restaurantRequestDTOs) {
+        BulkItemResultDTO[] results = new BulkItemResultDTO[restaurantRequestDTOs.size()];
+        List<Restaurant> restaurants = new ArrayList<>();
+        List<Integer> indexes = new ArrayList<>();
+        for (int i = 0; i < restaurantRequestDTOs.size(); i++) {
+            RestaurantRequestDTO restaurantRequestDTO = restaurantRequestDTOs.get(i);
+            List<String> errors = BulkResults.validate(validator, restaurantRequestDTO);
+            if (!errors.isEmpty()) {
+                results[i] = BulkResults.failed(i, errors);
+                continue;
+            }
+            Restaurant restaurant;
+            try {
+                restaurant = restaurantMapper.toRestaurant(restaurantRequestDTO);
+            } catch (IllegalArgumentException e) {
+                results[i] = BulkResults.failed(i, List.of("Неизвестный тип кухни: " + restaurantRequestDTO.getCuisineType()));
+                continue;
+            }
+            restaurant.setRating(BigDecimal.ZERO);
+            restaurants.add(restaurant);
+            indexes.add(i);
+        }
+
+        List<Restaurant> saved = restaurantRepository.saveAll(restaurants);
+        for (int k = 0; k < saved.size(); k++) {
+            results[indexes.get(k)] = BulkResults.created(indexes.get(k), saved.get(k).getId());
+            restaurantEventPublisher.changed(restaurantMapper.toRestaurantResponseDTO(saved.get(k)));
+        }
+        return BulkResults.summary(results);
     }
 
     @Override
+    @Transactional(readOnly = true)
+    public CursorPageDTO<RestaurantResponseDTO> getAll(String cursor, int size) {
+        int pageSize = CursorCodec.pageSize(size);
+        long afterId = cursor == null ? 0L : CursorCodec.decodeLongs(cursor, 1)[0];
+        List<RestaurantResponseDTO> rows = restaurantRepository.findResponsesAfter(afterId, Limit.of(pageSize + 1));
+        return CursorCodec.page(rows, pageSize, restaurant -> CursorCodec.encode(restaurant.getId()));
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    @Cacheable(cacheNames = CacheConfig.RESTAURANTS, unless = "#result == null")
     public RestaurantResponseDTO getById(Long id) {
-        return restaurantMapper.toRestaurantResponseDTO(restaurantRepository.findById(id).orElse(null));
+        return restaurantRepository.findResponseById(id).orElse(null);
+    }
+
+    // распределение хранится в строке ресторана, отзывы не читаются
+    @Override
+    @Transactional(readOnly = true)
+    public RatingDistributionDTO getRatingDistribution(Long id) {
+        return restaurantRepository.findRatingDistribution(id)
+                .map(RestaurantRepository.RatingDistribution::toResponse)
+                .orElse(null);
     }
 
     @Override
+    @Transactional
+    @CacheEvict(cacheNames = CacheConfig.RESTAURANTS)
     public void delete(Long id) {
         if (restaurantRepository.existsById(id)) {
             restaurantRepository.deleteById(id);
+            restaurantEventPublisher.deleted(id);
         }
     }
 
+    // Запись отзыва меняет version ресторана нативным запросом, поэтому PUT может проиграть ей гонку.
+    // Тогда строка перечитывается мимо кэша второго уровня и изменение применяется в новой транзакции
     @Override
+    @CacheEvict(cacheNames = CacheConfig.RESTAURANTS, key = "#id")
     public RestaurantResponseDTO update(Long id, RestaurantRequestDTO restaurantRequestDTO) {
-        Restaurant existingRestaurant = restaurantRepository.findById(id).orElse(null);
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return transactionTemplate.execute(status -> applyUpdate(id, restaurantRequestDTO));
+            } catch (ObjectOptimisticLockingFailureException e) {
+                if (attempt == UPDATE_ATTEMPTS) {
+                    throw new ResponseStatusException(HttpStatus.CONFLICT, "Ресторан изменяется одновременно с этим запросом, повторите его", e);
+                }
+            }
+        }
+    }
+
+    // чтение и запись в одной транзакции: read-only чтение вне её ушло бы на реплику
+    private RestaurantResponseDTO applyUpdate(Long id, RestaurantRequestDTO restaurantRequestDTO) {
+        Restaurant existingRestaurant = entityManager.find(Restaurant.class, id, BYPASS_CACHE);
         if (existingRestaurant == null) {
             return null;
         }
-        Restaurant updatedRestaurant = restaurantMapper.toRestaurant(restaurantRequestDTO);
-        updatedRestaurant.setId(existingRestaurant.getId());
-        return restaurantMapper.toRestaurantResponseDTO(restaurantRepository.save(updatedRestaurant));
+        restaurantMapper.updateRestaurant(restaurantRequestDTO, existingRestaurant);
+        RestaurantResponseDTO updated = restaurantMapper.toRestaurantResponseDTO(restaurantRepository.saveAndFlush(existingRestaurant));
+        restaurantEventPublisher.changed(updated);
+        return updated;
     }
 
-    public List<RestaurantResponseDTO> getRestaurantsWithMinRating(double rating) {
-        return restaurantRepository.findByRatingGreaterThanEqual(rating).stream()
-                .map(restaurantMapper::toRestaurantResponseDTO)
-                .toList();
+    // отвечает индекс в памяти, база не читается
+    @Override
+    public CursorPageDTO<RestaurantResponseDTO> getRestaurantsWithMinRating(BigDecimal rating, String cursor, int size) {
+        int pageSize = CursorCodec.pageSize(size);
+        BigDecimal afterRating = null;
+        long afterId = 0L;
+        if (cursor != null) {
+            String[] keys = CursorCodec.decode(cursor, 2);
+            try {
+                afterRating = new BigDecimal(keys[0]);
+                afterId = Long.parseLong(keys[1]);
+            } catch (NumberFormatException e) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Некорректный курсор", e);
+            }
+        }
+        List<RestaurantResponseDTO> rows = restaurantLeaderboard.withMinRating(rating, afterRating, afterId, pageSize + 1);
+        return CursorCodec.page(rows, pageSize,
+                restaurant -> CursorCodec.encode(restaurant.getRating().toPlainString(), restaurant.getId()));
     }
 
-    public List<RestaurantResponseDTO> getRestaurantsWithMinRatingJPQL(double rating) {
-        return restaurantRepository.findRestaurantsWithMinRating(rating).stream()
-                .map(restaurantMapper::toRestaurantResponseDTO)
-                .toList();
+    // прежние адреса отдавали весь список; теперь не больше LEGACY_MIN_RATING_LIMIT лучших, полный обход — через курсор /min-rating
+    @Override
+    public List<RestaurantResponseDTO> getAllRestaurantsWithMinRating(BigDecimal rating) {
+        return restaurantLeaderboard.withMinRating(rating, null, 0L, LEGACY_MIN_RATING_LIMIT);
+    }
+
+    @Override
+    public List<RestaurantResponseDTO> getLeaderboard(String cuisineType, int limit) {
+        return restaurantLeaderboard.top(parseCuisineType(cuisineType), CursorCodec.pageSize(limit));
+    }
+
+    @Override
+    public RestaurantFacetsDTO filter(List<String> cuisineTypes, BigDecimal minAvgCheck, BigDecimal maxAvgCheck,
+                                      BigDecimal minRating, int limit) {
+        Set<CuisineType> types = EnumSet.noneOf(CuisineType.class);
+        cuisineTypes.forEach(cuisineType -> types.add(parseCuisineType(cuisineType)));
+        return restaurantFacetIndex.filter(types, minAvgCheck, maxAvgCheck, minRating, CursorCodec.pageSize(limit));
+    }
+
+    private CuisineType parseCuisineType(String cuisineType) {
+        try {
+            return restaurantMapper.map(cuisineType);
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Неизвестный тип кухни: " + cuisineType, e);
+        }
     }
 }
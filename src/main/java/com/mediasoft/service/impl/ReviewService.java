@@ -1,120 +1,289 @@
 package com.mediasoft.service.impl;
 
+import com.mediasoft.config.CacheConfig;
+import com.mediasoft.dto.BulkItemResultDTO;
+import com.mediasoft.dto.BulkResultDTO;
+import com.mediasoft.dto.CursorPageDTO;
 import com.mediasoft.dto.ReviewRequestDTO;
 import com.mediasoft.dto.ReviewResponseDTO;
 import com.mediasoft.dto.ReviewUpdateRequestDTO;
-import com.mediasoft.entity.Restaurant;
 import com.mediasoft.entity.Review;
-import com.mediasoft.entity.Visitor;
+import com.mediasoft.entity.ReviewID;
+import com.mediasoft.event.ChangeMarkers;
+import com.mediasoft.event.ChangeMarkers.Resource;
+import com.mediasoft.event.RestaurantEventPublisher;
 import com.mediasoft.mapper.ReviewMapper;
+import com.mediasoft.rating.RatingRecomputeQueue;
 import com.mediasoft.repository.RestaurantRepository;
+import com.mediasoft.repository.RestaurantRepository.RatedRestaurant;
 import com.mediasoft.repository.ReviewRepository;
+import com.mediasoft.repository.ReviewRepository.ReviewRow;
 import com.mediasoft.repository.VisitorRepository;
+import com.mediasoft.util.BulkResults;
+import com.mediasoft.util.CursorCodec;
+import io.micrometer.core.annotation.Timed;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.validation.Validator;
 import lombok.RequiredArgsConstructor;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.core.NestedExceptionUtils;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.server.ResponseStatusException;
 
-import java.math.BigDecimal;
-import java.math.RoundingMode;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Collectors;
 
 @Service
 @RequiredArgsConstructor
+@Timed("app.service")
 public class ReviewService implements com.mediasoft.service.ReviewService {
+    private static final String UNIQUE_VIOLATION = "23505";
+    private static final String FOREIGN_KEY_VIOLATION = "23503";
+
     private final ReviewRepository reviewRepository;
     private final VisitorRepository visitorRepository;
     private final RestaurantRepository restaurantRepository;
     private final ReviewMapper mapper;
+    private final Validator validator;
+    private final CacheManager cacheManager;
+    private final RestaurantEventPublisher restaurantEventPublisher;
+    private final RatingRecomputeQueue ratingRecomputeQueue;
+    private final ChangeMarkers changeMarkers;
+
+    @PersistenceContext
+    private EntityManager entityManager;
 
     @Override
+    @Transactional
+    @CacheEvict(cacheNames = CacheConfig.RESTAURANTS, key = "#reviewRequestDTO.restaurantId")
     public ReviewResponseDTO create(ReviewRequestDTO reviewRequestDTO) {
-        System.out.println("Creating review: " + reviewRequestDTO);
-        Review review = mapper.toReview(reviewRequestDTO);
-        System.out.println("Mapped review: " + review.getRestaurant() + review.getVisitor());
+        try {
+            if (ratingRecomputeQueue.isEnabled()) {
+                reviewRepository.insertReview(reviewRequestDTO.getRestaurantId(), reviewRequestDTO.getVisitorId(),
+                        reviewRequestDTO.getRating(), reviewRequestDTO.getComment());
+                ratingRecomputeQueue.markDirty(reviewRequestDTO.getRestaurantId());
+            } else {
+                RatedRestaurant restaurant = reviewRepository.insertAndApplyRating(reviewRequestDTO.getRestaurantId(),
+                        reviewRequestDTO.getVisitorId(), reviewRequestDTO.getRating(), reviewRequestDTO.getComment());
+                restaurantEventPublisher.changed(restaurant.toResponse());
+            }
+        } catch (DataIntegrityViolationException e) {
+            throw switch (sqlState(e)) {
+                case UNIQUE_VIOLATION -> new ResponseStatusException(HttpStatus.CONFLICT,
+                        "Отзыв этого посетителя на этот ресторан уже существует", e);
+                case FOREIGN_KEY_VIOLATION -> new ResponseStatusException(HttpStatus.NOT_FOUND,
+                        "Ресторан или посетитель не найден", e);
+                default -> e;
+            };
+        }
+        changeMarkers.touch(Resource.REVIEWS);
+        return new ReviewResponseDTO(reviewRequestDTO.getRestaurantId(), reviewRequestDTO.getVisitorId(),
+                reviewRequestDTO.getComment(), reviewRequestDTO.getRating(), 0L);
+    }
 
-        Restaurant restaurant = review.getRestaurant();
-        if (restaurant == null || restaurant.getId() == null) {
-            return null;
+    @Override
+    @Transactional
+    public BulkResultDTO createAll(List<ReviewRequestDTO> reviewRequestDTOs) {
+        BulkItemResultDTO[] results = new BulkItemResultDTO[reviewRequestDTOs.size()];
+        List<ReviewRequestDTO> candidates = new ArrayList<>();
+        List<Integer> indexes = new ArrayList<>();
+        for (int i = 0; i < reviewRequestDTOs.size(); i++) {
+            List<String> errors = BulkResults.validate(validator, reviewRequestDTOs.get(i));
+            if (errors.isEmpty()) {
+                candidates.add(reviewRequestDTOs.get(i));
+                indexes.add(i);
+            } else {
+                results[i] = BulkResults.failed(i, errors);
+            }
         }
-        Visitor visitor = review.getVisitor();
-        if (visitor == null || visitor.getId() == null) {
-            return null;
+        if (candidates.isEmpty()) {
+            return BulkResults.summary(results);
         }
 
-        if (!restaurantRepository.existsById(restaurant.getId()) ||
-        !visitorRepository.existsById(visitor.getId())) {
-            return null;
+        Long[] restaurantIds = candidates.stream().map(ReviewRequestDTO::getRestaurantId).toArray(Long[]::new);
+        Long[] visitorIds = candidates.stream().map(ReviewRequestDTO::getVisitorId).toArray(Long[]::new);
+        Set<Long> existingRestaurants = restaurantRepository.findExistingIds(restaurantIds);
+        Set<Long> existingVisitors = visitorRepository.findExistingIds(visitorIds);
+        Set<ReviewID> takenIds = reviewRepository.findExistingKeys(restaurantIds, visitorIds).stream()
+                .map(key -> new ReviewID(key.getVisitorId(), key.getRestaurantId()))
+                .collect(Collectors.toSet());
+
+        // рейтинг каждого ресторана пересчитывается один раз на всю пачку
+        Map<Long, Long[]> ratingDeltas = new HashMap<>();
+        for (int k = 0; k < candidates.size(); k++) {
+            ReviewRequestDTO reviewRequestDTO = candidates.get(k);
+            int index = indexes.get(k);
+            List<String> errors = new ArrayList<>();
+            if (!existingRestaurants.contains(reviewRequestDTO.getRestaurantId())) {
+                errors.add("Ресторан не найден: " + reviewRequestDTO.getRestaurantId());
+            }
+            if (!existingVisitors.contains(reviewRequestDTO.getVisitorId())) {
+                errors.add("Посетитель не найден: " + reviewRequestDTO.getVisitorId());
+            }
+            Review review = mapper.toReview(reviewRequestDTO);
+            if (errors.isEmpty() && !takenIds.add(review.getId())) {
+                errors.add("Отзыв этого посетителя на этот ресторан уже существует");
+            }
+            if (!errors.isEmpty()) {
+                results[index] = BulkResults.failed(index, errors);
+                continue;
+            }
+
+            review.setRestaurant(restaurantRepository.getReferenceById(reviewRequestDTO.getRestaurantId()));
+            review.setVisitor(visitorRepository.getReferenceById(reviewRequestDTO.getVisitorId()));
+            entityManager.persist(review);
+            Long[] delta = ratingDeltas.computeIfAbsent(reviewRequestDTO.getRestaurantId(), id -> starDelta(null, null));
+            delta[review.getRating() - 1]++;
+            results[index] = BulkResults.created(index, null);
         }
-        Review savedReview = reviewRepository.save(review);
-        updateRestaurantRating(savedReview.getRestaurant().getId());
-        return mapper.toReviewResponseDTO(savedReview);
+
+        changeMarkers.touch(Resource.REVIEWS);
+        Cache restaurantCache = cacheManager.getCache(CacheConfig.RESTAURANTS);
+        ratingDeltas.forEach((restaurantId, delta) -> {
+            applyRatingDelta(restaurantId, delta);
+            restaurantCache.evict(restaurantId);
+        });
+        return BulkResults.summary(results);
     }
 
     @Override
+    @Transactional(readOnly = true)
     public ReviewResponseDTO getById(Long visitorId, Long restaurantId) {
-        Review review = reviewRepository.findByVisitorIdAndRestaurantId(visitorId, restaurantId).orElse(null);
-        if (review == null) {
-            return null;
-        }
+        return reviewRepository.findResponseById(restaurantId, visitorId).orElse(null);
+    }
 
-        return mapper.toReviewResponseDTO(review);
+    @Override
+    @Transactional(readOnly = true)
+    public CursorPageDTO<ReviewResponseDTO> getAll(String cursor, int size) {
+        int pageSize = CursorCodec.pageSize(size);
+        long[] after = cursor == null ? new long[]{0L, 0L} : CursorCodec.decodeLongs(cursor, 2);
+        List<ReviewResponseDTO> rows = reviewRepository.findResponsesAfter(after[0], after[1], Limit.of(pageSize + 1));
+        return CursorCodec.page(rows, pageSize, review -> CursorCodec.encode(review.getRestaurantId(), review.getVisitorId()));
     }
 
+    // курсор — (rating, visitorId) последнего отзыва страницы
     @Override
-    public List<ReviewResponseDTO> getAll() {
-        List<Review> reviews = reviewRepository.findAll();
-        return reviews.stream()
-                .map(mapper::toReviewResponseDTO)
-                .toList();
+    @Transactional(readOnly = true)
+    public CursorPageDTO<ReviewResponseDTO> getByRestaurant(Long restaurantId, String sort, String cursor, int size) {
+        int pageSize = CursorCodec.pageSize(size);
+        boolean ascending = isAscending(sort);
+        long[] after = cursor == null ? firstKey(ascending) : CursorCodec.decodeLongs(cursor, 2);
+        List<ReviewRow> rows = ascending
+                ? reviewRepository.findRestaurantFeedAsc(restaurantId, after[0], after[1], pageSize + 1)
+                : reviewRepository.findRestaurantFeedDesc(restaurantId, after[0], after[1], pageSize + 1);
+        return CursorCodec.page(rows.stream().map(ReviewRow::toResponse).toList(), pageSize,
+                review -> CursorCodec.encode(review.getRating(), review.getVisitorId()));
     }
 
+    // курсор — (rating, restaurantId) последнего отзыва страницы
     @Override
+    @Transactional(readOnly = true)
+    public CursorPageDTO<ReviewResponseDTO> getByVisitor(Long visitorId, String sort, String cursor, int size) {
+        int pageSize = CursorCodec.pageSize(size);
+        boolean ascending = isAscending(sort);
+        long[] after = cursor == null ? firstKey(ascending) : CursorCodec.decodeLongs(cursor, 2);
+        List<ReviewRow> rows = ascending
+                ? reviewRepository.findVisitorFeedAsc(visitorId, after[0], after[1], pageSize + 1)
+                : reviewRepository.findVisitorFeedDesc(visitorId, after[0], after[1], pageSize + 1);
+        return CursorCodec.page(rows.stream().map(ReviewRow::toResponse).toList(), pageSize,
+                review -> CursorCodec.encode(review.getRating(), review.getRestaurantId()));
+    }
+
+    @Override
+    @Transactional
+    @CacheEvict(cacheNames = CacheConfig.RESTAURANTS, key = "#restaurantId")
     public ReviewResponseDTO update(Long visitorId, Long restaurantId, ReviewUpdateRequestDTO reviewRequestDTO) {
         Review existingReview = reviewRepository.findByVisitorIdAndRestaurantId(visitorId, restaurantId).orElse(null);
         if (existingReview == null) {
             return null;
         }
 
+        int oldRating = existingReview.getRating();
         existingReview.setRating(reviewRequestDTO.getRating());
         existingReview.setComment(reviewRequestDTO.getComment());
-        Review updated = reviewRepository.save(existingReview);
-        updateRestaurantRating(updated.getRestaurant().getId());
+        Review updated = reviewRepository.saveAndFlush(existingReview);
+        changeMarkers.touch(Resource.REVIEWS);
+        if (updated.getRating() != oldRating) {
+            applyRatingDelta(restaurantId, starDelta(oldRating, updated.getRating()));
+        }
         return mapper.toReviewResponseDTO(updated);
     }
 
     @Override
+    @Transactional
+    @CacheEvict(cacheNames = CacheConfig.RESTAURANTS, key = "#restaurantId")
     public void delete(Long visitorId, Long restaurantId) {
         Optional<Review> reviewOpt = reviewRepository.findByVisitorIdAndRestaurantId(visitorId, restaurantId);
         if (reviewOpt.isPresent()) {
             Review review = reviewOpt.get();
             reviewRepository.delete(review);
-            updateRestaurantRating(review.getRestaurant().getId());
+            changeMarkers.touch(Resource.REVIEWS);
+            applyRatingDelta(restaurantId, starDelta(review.getRating(), null));
+        }
+    }
+
+    // количество и сумму оценок запрос выводит из изменения счётчиков по звёздам
+    private void applyRatingDelta(Long restaurantId, Long[] starDelta) {
+        if (ratingRecomputeQueue.isEnabled()) {
+            ratingRecomputeQueue.markDirty(restaurantId);
+            return;
         }
+        restaurantRepository.applyRatingDelta(restaurantId, starDelta);
+        restaurantEventPublisher.changed(restaurantId);
     }
 
-    private void updateRestaurantRating(Long restaurantId) {
-        List<Review> reviews = reviewRepository.findByRestaurantId(restaurantId);
-        if (reviews.isEmpty()) return;
-        double averageRating = reviews.stream()
-                .mapToDouble(review -> review.getRating())
-                .average()
-                .orElse(0.0);
-        Restaurant restaurant = restaurantRepository.findById(restaurantId).orElse(null);
-        if (restaurant != null) {
-            restaurant.setRating(BigDecimal.valueOf(averageRating).setScale(1, RoundingMode.HALF_UP));
-            restaurantRepository.save(restaurant);
+    // изменение счётчиков отзывов по звёздам, индекс 0 — одна звезда
+    private static Long[] starDelta(Integer removedRating, Integer addedRating) {
+        Long[] delta = {0L, 0L, 0L, 0L, 0L};
+        if (removedRating != null) {
+            delta[removedRating - 1]--;
         }
+        if (addedRating != null) {
+            delta[addedRating - 1]++;
+        }
+        return delta;
+    }
+
+    private static String sqlState(DataIntegrityViolationException e) {
+        return NestedExceptionUtils.getMostSpecificCause(e) instanceof SQLException sqlException
+                ? sqlException.getSQLState()
+                : "";
     }
 
+    @Transactional(readOnly = true)
     public Page<ReviewResponseDTO> getReviewsSortedByRatingAsc(Pageable pageable) {
-        return reviewRepository.findAllByOrderByRatingAsc(pageable)
-                .map(mapper::toReviewResponseDTO);
+        return reviewRepository.findAllByOrderByRatingAsc(pageable);
     }
 
+    @Transactional(readOnly = true)
     public Page<ReviewResponseDTO> getReviewsSortedByRatingDesc(Pageable pageable) {
-        return reviewRepository.findAllByOrderByRatingDesc(pageable)
-                .map(mapper::toReviewResponseDTO);
+        return reviewRepository.findAllByOrderByRatingDesc(pageable);
+    }
+
+    private static boolean isAscending(String sort) {
+        return Sort.Direction.fromOptionalString(sort)
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.BAD_REQUEST, "Некорректная сортировка: " + sort))
+                .isAscending();
+    }
+
+    // ключ перед первой строкой ленты в выбранном направлении
+    private static long[] firstKey(boolean ascending) {
+        return ascending ? new long[]{0L, 0L} : new long[]{Long.MAX_VALUE, Long.MAX_VALUE};
     }
 }
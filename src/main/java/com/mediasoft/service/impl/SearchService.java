@@ -0,0 +1,84 @@
+package com.mediasoft.service.impl;
+
+import com.mediasoft.dto.CursorPageDTO;
+import com.mediasoft.dto.RestaurantResponseDTO;
+import com.mediasoft.dto.ReviewResponseDTO;
+import com.mediasoft.repository.RestaurantRepository;
+import com.mediasoft.repository.RestaurantRepository.RestaurantHit;
+import com.mediasoft.repository.ReviewRepository;
+import com.mediasoft.repository.ReviewRepository.ReviewHit;
+import com.mediasoft.util.CursorCodec;
+import io.micrometer.core.annotation.Timed;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.List;
+
+// Выдача упорядочена по ts_rank, курсор хранит ранг и ключ последней строки страницы. Ранг float4 переживает
+// курсор без потерь (Float.toString обратим), поэтому равные ранги делятся между страницами по ключу.
+// Цель в 10 мс держат редкие слова и поиск отзывов одного ресторана. Частое слово по всем отзывам требует
+// ранжировать каждое совпадение (около 250 мс на 8% миллиона строк): GIN не хранит ранг, индекс RUM,
+// который умеет отдавать совпадения сразу по рангу, в стандартный Postgres не входит
+@Service
+@RequiredArgsConstructor
+@Timed("app.service")
+public class SearchService implements com.mediasoft.service.SearchService {
+    private final RestaurantRepository restaurantRepository;
+    private final ReviewRepository reviewRepository;
+
+    @Override
+    @Transactional(readOnly = true)
+    public CursorPageDTO<RestaurantResponseDTO> searchRestaurants(String query, String cursor, int size) {
+        String text = requireQuery(query);
+        int pageSize = CursorCodec.pageSize(size);
+        float afterRank = Float.MAX_VALUE;
+        long afterId = 0L;
+        if (cursor != null) {
+            String[] keys = CursorCodec.decode(cursor, 2);
+            try {
+                afterRank = Float.parseFloat(keys[0]);
+                afterId = Long.parseLong(keys[1]);
+            } catch (NumberFormatException e) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Некорректный курсор", e);
+            }
+        }
+        List<RestaurantHit> hits = restaurantRepository.search(text, afterRank, afterId, pageSize + 1);
+        CursorPageDTO<RestaurantHit> page = CursorCodec.page(hits, pageSize, hit -> CursorCodec.encode(hit.getRank(), hit.getId()));
+        return new CursorPageDTO<>(page.getItems().stream().map(RestaurantHit::toResponse).toList(), page.getNextCursor());
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public CursorPageDTO<ReviewResponseDTO> searchReviews(String query, Long restaurantId, String cursor, int size) {
+        String text = requireQuery(query);
+        int pageSize = CursorCodec.pageSize(size);
+        float afterRank = Float.MAX_VALUE;
+        long afterRestaurantId = 0L;
+        long afterVisitorId = 0L;
+        if (cursor != null) {
+            String[] keys = CursorCodec.decode(cursor, 3);
+            try {
+                afterRank = Float.parseFloat(keys[0]);
+                afterRestaurantId = Long.parseLong(keys[1]);
+                afterVisitorId = Long.parseLong(keys[2]);
+            } catch (NumberFormatException e) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Некорректный курсор", e);
+            }
+        }
+        List<ReviewHit> hits = reviewRepository.search(text, restaurantId == null ? 0L : restaurantId,
+                afterRank, afterRestaurantId, afterVisitorId, pageSize + 1);
+        CursorPageDTO<ReviewHit> page = CursorCodec.page(hits, pageSize,
+                hit -> CursorCodec.encode(hit.getRank(), hit.getRestaurantId(), hit.getVisitorId()));
+        return new CursorPageDTO<>(page.getItems().stream().map(ReviewHit::toResponse).toList(), page.getNextCursor());
+    }
+
+    private static String requireQuery(String query) {
+        if (query == null || query.isBlank()) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Пустой поисковый запрос");
+        }
+        return query.strip();
+    }
+}
@@ -1,56 +1,143 @@
 package com.mediasoft.service.impl;
 
+import com.mediasoft.config.CacheConfig;
+import com.mediasoft.dto.BulkItemResultDTO;
+import com.mediasoft.dto.BulkResultDTO;
+import com.mediasoft.dto.CursorPageDTO;
 import com.mediasoft.dto.VisitorRequestDTO;
 import com.mediasoft.dto.VisitorResponseDTO;
 import com.mediasoft.entity.Visitor;
+import com.mediasoft.event.ChangeMarkers;
+import com.mediasoft.event.ChangeMarkers.Resource;
+import com.mediasoft.event.RestaurantEventPublisher;
 import com.mediasoft.mapper.VisitorMapper;
+import com.mediasoft.rating.RatingRecomputeQueue;
+import com.mediasoft.repository.RestaurantRepository;
+import com.mediasoft.repository.RestaurantRepository.RatedRestaurant;
+import com.mediasoft.repository.ReviewRepository;
 import com.mediasoft.repository.VisitorRepository;
+import com.mediasoft.util.BulkResults;
+import com.mediasoft.util.CursorCodec;
+import io.micrometer.core.annotation.Timed;
+import jakarta.validation.Validator;
 import lombok.RequiredArgsConstructor;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.util.ArrayList;
 import java.util.List;
 
 @Service
 @RequiredArgsConstructor
+@Timed("app.service")
 public class VisitorService implements com.mediasoft.service.VisitorService {
     private final VisitorRepository visitorRepository;
     private final VisitorMapper visitorMapper;
+    private final RestaurantRepository restaurantRepository;
+    private final ReviewRepository reviewRepository;
+    private final CacheManager cacheManager;
+    private final RestaurantEventPublisher restaurantEventPublisher;
+    private final RatingRecomputeQueue ratingRecomputeQueue;
+    private final Validator validator;
+    private final ChangeMarkers changeMarkers;
 
     @Override
     public VisitorResponseDTO create(VisitorRequestDTO visitorRequestDTO) {
         Visitor visitor = visitorMapper.toVisitor(visitorRequestDTO);
-        return visitorMapper.toVisitorResponseDTO(visitorRepository.save(visitor));
+        VisitorResponseDTO created = visitorMapper.toVisitorResponseDTO(visitorRepository.save(visitor));
+        changeMarkers.touch(Resource.VISITORS);
+        return created;
     }
 
     @Override
-    public List<VisitorResponseDTO> getAll() {
-        return visitorRepository.findAll().stream()
-                .map(visitor -> visitorMapper.toVisitorResponseDTO(visitor))
-                .toList();
+    @Transactional
+    public BulkResultDTO createAll(List<VisitorRequestDTO> visitorRequestDTOs) {
+        BulkItemResultDTO[] results = new BulkItemResultDTO[visitorRequestDTOs.size()];
+        List<Visitor> visitors = new ArrayList<>();
+        List<Integer> indexes = new ArrayList<>();
+        for (int i = 0; i < visitorRequestDTOs.size(); i++) {
+            VisitorRequestDTO visitorRequestDTO = visitorRequestDTOs.get(i);
+            List<String> errors = BulkResults.validate(validator, visitorRequestDTO);
+            if (!errors.isEmpty()) {
+                results[i] = BulkResults.failed(i, errors);
+                continue;
+            }
+            try {
+                visitors.add(visitorMapper.toVisitor(visitorRequestDTO));
+                indexes.add(i);
+            } catch (IllegalArgumentException e) {
+                results[i] = BulkResults.failed(i, List.of("Неизвестный пол: " + visitorRequestDTO.getSex()));
+            }
+        }
+
+        List<Visitor> saved = visitorRepository.saveAll(visitors);
+        changeMarkers.touch(Resource.VISITORS);
+        for (int k = 0; k < saved.size(); k++) {
+            results[indexes.get(k)] = BulkResults.created(indexes.get(k), saved.get(k).getId());
+        }
+        return BulkResults.summary(results);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public CursorPageDTO<VisitorResponseDTO> getAll(String cursor, int size) {
+        int pageSize = CursorCodec.pageSize(size);
+        long afterId = cursor == null ? 0L : CursorCodec.decodeLongs(cursor, 1)[0];
+        List<VisitorResponseDTO> rows = visitorRepository.findResponsesAfter(afterId, Limit.of(pageSize + 1));
+        return CursorCodec.page(rows, pageSize, visitor -> CursorCodec.encode(visitor.getId()));
     }
 
     @Override
+    @Transactional(readOnly = true)
+    @Cacheable(cacheNames = CacheConfig.VISITORS, unless = "#result == null")
     public VisitorResponseDTO getById(Long id) {
-        Visitor visitor = visitorRepository.findById(id).orElse(null);
-        if (visitor == null) {
-            return null;
-        }
-        return visitorMapper.toVisitorResponseDTO(visitor);
+        return visitorRepository.findResponseById(id).orElse(null);
     }
 
     @Override
+    @Transactional
+    @CacheEvict(cacheNames = CacheConfig.VISITORS)
     public void delete(Long id) {
-        visitorRepository.deleteById(id);
+        // строка посетителя блокируется первой: новый отзыв на него дождётся коммита и упадёт на внешнем ключе,
+        // поэтому каскад при удалении посетителя не заберёт отзыв, не вычтенный из агрегатов
+        if (visitorRepository.lockById(id).isEmpty()) {
+            return;
+        }
+        changeMarkers.touch(Resource.VISITORS, Resource.REVIEWS);
+        if (ratingRecomputeQueue.isEnabled()) {
+            List<Long> restaurantIds = reviewRepository.deleteByVisitorId(id);
+            visitorRepository.deleteRow(id);
+            restaurantIds.forEach(ratingRecomputeQueue::markDirty);
+            return;
+        }
+        Cache restaurantCache = cacheManager.getCache(CacheConfig.RESTAURANTS);
+        List<RatedRestaurant> restaurants = restaurantRepository.deleteVisitorReviews(id);
+        visitorRepository.deleteRow(id);
+        restaurants.forEach(restaurant -> {
+            restaurantCache.evict(restaurant.getId());
+            restaurantEventPublisher.changed(restaurant.toResponse());
+        });
     }
 
     @Override
+    @Transactional
+    @CacheEvict(cacheNames = CacheConfig.VISITORS, key = "#id")
     public VisitorResponseDTO update(Long id, VisitorRequestDTO visitorRequestDTO) {
         Visitor existingVisitor = visitorRepository.findById(id).orElse(null);
         if (existingVisitor == null) {
             return null;
         }
-        Visitor updatedVisitor = visitorMapper.toVisitor(visitorRequestDTO);
-        updatedVisitor.setId(existingVisitor.getId());
-        return visitorMapper.toVisitorResponseDTO(visitorRepository.save(updatedVisitor));
+        // поля копируются в управляемую сущность: merge новой сущности с reviews = null
+        // очистил бы коллекцию и orphanRemoval удалил бы все отзывы посетителя
+        visitorMapper.updateVisitor(visitorRequestDTO, existingVisitor);
+        // flush сразу, чтобы в ответ попала уже увеличенная версия
+        VisitorResponseDTO updated = visitorMapper.toVisitorResponseDTO(visitorRepository.saveAndFlush(existingVisitor));
+        changeMarkers.touch(Resource.VISITORS);
+        return updated;
     }
 }
@@ -0,0 +1,53 @@
+package com.mediasoft.sql;
+
+// Счётчики SQL в рамках одного HTTP-запроса. Вне запроса (планировщик, старт приложения)
+// текущей статистики нет и ничего не считается
+public final class SqlStatistics {
+    public static final String STATEMENTS_HEADER = "X-Sql-Statements";
+    public static final String ROWS_HEADER = "X-Sql-Rows";
+    public static final String TIME_HEADER = "X-Sql-Time-Ms";
+
+    private static final ThreadLocal<SqlStatistics> CURRENT = new ThreadLocal<>();
+
+    private int statements;
+    private long rows;
+    private long timeMillis;
+
+    private SqlStatistics() {
+    }
+
+    static SqlStatistics start() {
+        SqlStatistics statistics = new SqlStatistics();
+        CURRENT.set(statistics);
+        return statistics;
+    }
+
+    static void stop() {
+        CURRENT.remove();
+    }
+
+    static SqlStatistics current() {
+        return CURRENT.get();
+    }
+
+    void statementExecuted(long elapsedMillis) {
+        statements++;
+        timeMillis += elapsedMillis;
+    }
+
+    void rowFetched() {
+        rows++;
+    }
+
+    public int getStatements() {
+        return statements;
+    }
+
+    public long getRows() {
+        return rows;
+    }
+
+    public long getTimeMillis() {
+        return timeMillis;
+    }
+}
@@ -0,0 +1,65 @@
+package com.mediasoft.sql;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerMapping;
+
+import java.io.IOException;
+import java.time.Duration;
+
+@Component
+@RequiredArgsConstructor
+public class SqlStatisticsFilter extends OncePerRequestFilter {
+    private final MeterRegistry meterRegistry;
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        SqlStatistics statistics = SqlStatistics.start();
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            SqlStatistics.stop();
+            // ответы с телом получают заголовки в SqlStatisticsHeaderAdvice, до записи тела
+            if (!response.isCommitted()) {
+                writeHeaders(response, statistics);
+            }
+            record(request, statistics);
+        }
+    }
+
+    static void writeHeaders(HttpServletResponse response, SqlStatistics statistics) {
+        response.setHeader(SqlStatistics.STATEMENTS_HEADER, String.valueOf(statistics.getStatements()));
+        response.setHeader(SqlStatistics.ROWS_HEADER, String.valueOf(statistics.getRows()));
+        response.setHeader(SqlStatistics.TIME_HEADER, String.valueOf(statistics.getTimeMillis()));
+    }
+
+    private void record(HttpServletRequest request, SqlStatistics statistics) {
+        Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        String uri = pattern != null ? pattern.toString() : "UNKNOWN";
+        String method = request.getMethod();
+        DistributionSummary.builder("app.sql.statements")
+                .description("SQL-запросы на один HTTP-запрос")
+                .tags("method", method, "uri", uri)
+                .register(meterRegistry)
+                .record(statistics.getStatements());
+        DistributionSummary.builder("app.sql.rows")
+                .description("Строки, прочитанные из базы за один HTTP-запрос")
+                .tags("method", method, "uri", uri)
+                .register(meterRegistry)
+                .record(statistics.getRows());
+        Timer.builder("app.sql.time")
+                .description("Время в базе за один HTTP-запрос")
+                .tags("method", method, "uri", uri)
+                .register(meterRegistry)
+                .record(Duration.ofMillis(statistics.getTimeMillis()));
+    }
+}
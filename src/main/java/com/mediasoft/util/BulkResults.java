@@ -0,0 +1,36 @@
+package com.mediasoft.util;
+
+import com.mediasoft.dto.BulkItemResultDTO;
+import com.mediasoft.dto.BulkResultDTO;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+
+import java.util.Arrays;
+import java.util.List;
+
+public final class BulkResults {
+    private BulkResults() {
+    }
+
+    public static List<String> validate(Validator validator, Object item) {
+        if (item == null) {
+            return List.of("Пустой элемент");
+        }
+        return validator.validate(item).stream()
+                .map(ConstraintViolation::getMessage)
+                .toList();
+    }
+
+    public static BulkItemResultDTO created(int index, Long id) {
+        return new BulkItemResultDTO(index, true, id, List.of());
+    }
+
+    public static BulkItemResultDTO failed(int index, List<String> errors) {
+        return new BulkItemResultDTO(index, false, null, errors);
+    }
+
+    public static BulkResultDTO summary(BulkItemResultDTO[] results) {
+        int created = (int) Arrays.stream(results).filter(BulkItemResultDTO::isCreated).count();
+        return new BulkResultDTO(results.length, created, results.length - created, Arrays.asList(results));
+    }
+}
@@ -0,0 +1,65 @@
+package com.mediasoft.util;
+
+import com.mediasoft.dto.CursorPageDTO;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.List;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+public final class CursorCodec {
+    public static final int DEFAULT_PAGE_SIZE = 20;
+    public static final int MAX_PAGE_SIZE = 100;
+
+    private static final String SEPARATOR = ":";
+
+    private CursorCodec() {
+    }
+
+    public static int pageSize(int requested) {
+        if (requested < 1) {
+            return DEFAULT_PAGE_SIZE;
+        }
+        return Math.min(requested, MAX_PAGE_SIZE);
+    }
+
+    public static String encode(Object... keys) {
+        String raw = Arrays.stream(keys).map(String::valueOf).collect(Collectors.joining(SEPARATOR));
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static String[] decode(String cursor, int keyCount) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            String[] keys = raw.split(SEPARATOR, -1);
+            if (keys.length != keyCount) {
+                throw new IllegalArgumentException(raw);
+            }
+            return keys;
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Некорректный курсор", e);
+        }
+    }
+
+    public static long[] decodeLongs(String cursor, int keyCount) {
+        String[] keys = decode(cursor, keyCount);
+        try {
+            return Arrays.stream(keys).mapToLong(Long::parseLong).toArray();
+        } catch (NumberFormatException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Некорректный курсор", e);
+        }
+    }
+
+    // rows должны быть выбраны с лимитом pageSize + 1: лишняя строка означает, что есть следующая страница
+    public static <T> CursorPageDTO<T> page(List<T> rows, int pageSize, Function<T, String> cursorOf) {
+        if (rows.size() <= pageSize) {
+            return new CursorPageDTO<>(rows, null);
+        }
+        List<T> items = rows.subList(0, pageSize);
+        return new CursorPageDTO<>(items, cursorOf.apply(items.get(pageSize - 1)));
+    }
+}
@@ -0,0 +1,46 @@
+package com.mediasoft.util;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.web.context.request.ServletWebRequest;
+import org.springframework.web.context.request.WebRequest;
+
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+// Для сущности — сильный ETag из id и версии строки, для списка — слабый из маркера изменений и параметров страницы:
+// Tomcat не сжимает ответы с сильным ETag, а списки большие. If-None-Match сравнивает слабо, 304 работает для обоих.
+// Один и тот же ресурс отдаётся в JSON, CBOR или Smile, поэтому в тег входит и хэш заголовка Accept
+public final class ETags {
+    private ETags() {
+    }
+
+    public static String of(Object... parts) {
+        return Arrays.stream(parts)
+                .map(String::valueOf)
+                .collect(Collectors.joining("-", "\"", "\""));
+    }
+
+    // true — клиент уже видел это представление, ответ 304 выставлен и тело писать не нужно
+    public static boolean notModified(WebRequest request, Object... parts) {
+        return request.checkNotModified(of(withAccept(request, parts)));
+    }
+
+    // без маркера изменений (ChangeMarkers выключены) ETag у страницы нет и 304 не бывает
+    public static boolean pageNotModified(WebRequest request, String name, String marker, Object... parts) {
+        if (marker == null) {
+            return false;
+        }
+        Object[] tagParts = Stream.concat(Stream.of(name, marker), Arrays.stream(parts)).toArray();
+        return request.checkNotModified("W/" + of(withAccept(request, tagParts)));
+    }
+
+    private static Object[] withAccept(WebRequest request, Object[] parts) {
+        if (request instanceof ServletWebRequest servletRequest && servletRequest.getResponse() != null) {
+            servletRequest.getResponse().addHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT);
+        }
+        String accept = request.getHeader(HttpHeaders.ACCEPT);
+        return Stream.concat(Arrays.stream(parts), Stream.of(Integer.toHexString(Objects.hashCode(accept)))).toArray();
+    }
+}
@@ -0,0 +1,26 @@
+package com.mediasoft.util;
+
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
+
+@Component
+@RequiredArgsConstructor
+public class NdjsonReader {
+    private final ObjectMapper objectMapper;
+
+    public <T> List<T> read(InputStream body, Class<T> type) {
+        try (MappingIterator<T> iterator = objectMapper.readerFor(type).readValues(body)) {
+            return iterator.readAll();
+        } catch (IOException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Некорректный NDJSON", e);
+        }
+    }
+}
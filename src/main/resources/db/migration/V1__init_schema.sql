@@ -0,0 +1,38 @@
+-- Схема, которую раньше создавал hibernate ddl-auto=update.
+-- Все операции идемпотентны, чтобы миграция применялась и к уже существующим базам.
+
+CREATE TABLE IF NOT EXISTS restaurants (
+    id           BIGINT         NOT NULL PRIMARY KEY,
+    name         VARCHAR(255)   NOT NULL,
+    description  VARCHAR(255)   NOT NULL,
+    cuisine_type VARCHAR(255)   NOT NULL CHECK (cuisine_type IN ('RUSSIAN', 'ITALIAN', 'CHINESE', 'AMERICAN')),
+    avg_check    NUMERIC(38, 2) NOT NULL,
+    rating       NUMERIC(38, 2) NOT NULL,
+    review_count BIGINT         NOT NULL DEFAULT 0,
+    rating_sum   BIGINT         NOT NULL DEFAULT 0
+);
+
+CREATE TABLE IF NOT EXISTS visitors (
+    id   BIGINT       NOT NULL PRIMARY KEY,
+    name VARCHAR(255) NOT NULL,
+    age  INTEGER      NOT NULL,
+    sex  VARCHAR(255) NOT NULL CHECK (sex IN ('MALE', 'FEMALE'))
+);
+
+CREATE TABLE IF NOT EXISTS reviews (
+    restaurant_id BIGINT  NOT NULL REFERENCES restaurants (id),
+    visitor_id    BIGINT  NOT NULL REFERENCES visitors (id),
+    rating        INTEGER NOT NULL,
+    comment       TEXT,
+    PRIMARY KEY (restaurant_id, visitor_id)
+);
+
+ALTER TABLE restaurants ADD COLUMN IF NOT EXISTS review_count BIGINT NOT NULL DEFAULT 0;
+ALTER TABLE restaurants ADD COLUMN IF NOT EXISTS rating_sum BIGINT NOT NULL DEFAULT 0;
+
+CREATE SEQUENCE IF NOT EXISTS restaurants_seq START WITH 1 INCREMENT BY 50;
+CREATE SEQUENCE IF NOT EXISTS visitors_seq START WITH 1 INCREMENT BY 50;
+
+-- базы, созданные с IDENTITY-ключами, уже содержат строки: сдвигаем последовательности за max(id)
+SELECT setval('restaurants_seq', GREATEST((SELECT COALESCE(MAX(id), 0) FROM restaurants), (SELECT last_value FROM restaurants_seq)));
+SELECT setval('visitors_seq', GREATEST((SELECT COALESCE(MAX(id), 0) FROM visitors), (SELECT last_value FROM visitors_seq)));
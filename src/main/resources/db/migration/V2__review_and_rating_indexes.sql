@@ -0,0 +1,11 @@
+-- findByRestaurantId, пересчет рейтинга и отзывы ресторана, отсортированные по оценке
+CREATE INDEX IF NOT EXISTS idx_reviews_restaurant_rating ON reviews (restaurant_id, rating, visitor_id);
+
+-- findByVisitorId и удаление посетителя вместе с его отзывами
+CREATE INDEX IF NOT EXISTS idx_reviews_visitor_rating ON reviews (visitor_id, rating, restaurant_id);
+
+-- страницы /api/reviews/sorted/asc|desc
+CREATE INDEX IF NOT EXISTS idx_reviews_rating ON reviews (rating, restaurant_id, visitor_id);
+
+-- findByRatingGreaterThanEqual / findRestaurantsWithMinRating
+CREATE INDEX IF NOT EXISTS idx_restaurants_rating ON restaurants (rating, id);
@@ -0,0 +1,12 @@
+-- Полнотекстовый поиск: конфигурация russian стеммит и кириллицу, и латиницу (english_stem),
+-- GIN-индексы обновляются самой базой при каждой вставке, изменении и удалении строки
+ALTER TABLE restaurants ADD COLUMN IF NOT EXISTS search_vector tsvector
+    GENERATED ALWAYS AS (setweight(to_tsvector('russian', coalesce(name, '')), 'A')
+                         || setweight(to_tsvector('russian', coalesce(description, '')), 'B')) STORED;
+
+ALTER TABLE reviews ADD COLUMN IF NOT EXISTS search_vector tsvector
+    GENERATED ALWAYS AS (to_tsvector('russian', coalesce(comment, ''))) STORED;
+
+CREATE INDEX IF NOT EXISTS idx_restaurants_search ON restaurants USING GIN (search_vector);
+
+CREATE INDEX IF NOT EXISTS idx_reviews_search ON reviews USING GIN (search_vector);
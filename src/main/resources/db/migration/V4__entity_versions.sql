@@ -0,0 +1,4 @@
+-- Версия строки для @Version и ETag. Нативные запросы, меняющие рейтинг ресторана, увеличивают её сами
+ALTER TABLE restaurants ADD COLUMN IF NOT EXISTS version BIGINT NOT NULL DEFAULT 0;
+ALTER TABLE visitors ADD COLUMN IF NOT EXISTS version BIGINT NOT NULL DEFAULT 0;
+ALTER TABLE reviews ADD COLUMN IF NOT EXISTS version BIGINT NOT NULL DEFAULT 0;
@@ -0,0 +1,22 @@
+-- Распределение оценок ресторана: счётчик отзывов на каждое число звёзд.
+-- Поддерживается теми же запросами, что и review_count / rating_sum
+ALTER TABLE restaurants ADD COLUMN IF NOT EXISTS stars_1 BIGINT NOT NULL DEFAULT 0;
+ALTER TABLE restaurants ADD COLUMN IF NOT EXISTS stars_2 BIGINT NOT NULL DEFAULT 0;
+ALTER TABLE restaurants ADD COLUMN IF NOT EXISTS stars_3 BIGINT NOT NULL DEFAULT 0;
+ALTER TABLE restaurants ADD COLUMN IF NOT EXISTS stars_4 BIGINT NOT NULL DEFAULT 0;
+ALTER TABLE restaurants ADD COLUMN IF NOT EXISTS stars_5 BIGINT NOT NULL DEFAULT 0;
+
+UPDATE restaurants r SET
+    stars_1 = s.s1,
+    stars_2 = s.s2,
+    stars_3 = s.s3,
+    stars_4 = s.s4,
+    stars_5 = s.s5
+FROM (SELECT restaurant_id,
+             COUNT(*) FILTER (WHERE rating = 1) AS s1,
+             COUNT(*) FILTER (WHERE rating = 2) AS s2,
+             COUNT(*) FILTER (WHERE rating = 3) AS s3,
+             COUNT(*) FILTER (WHERE rating = 4) AS s4,
+             COUNT(*) FILTER (WHERE rating = 5) AS s5
+      FROM reviews GROUP BY restaurant_id) s
+WHERE r.id = s.restaurant_id;
@@ -0,0 +1,27 @@
+-- Однократное заполнение агрегатов рейтинга для баз, где review_count / rating_sum добавлены в V1
+-- со значением по умолчанию. Дальше агрегаты поддерживаются дельтами при записи отзывов.
+-- SHARE-блокировка не даёт другим экземплярам приложения изменить отзывы между подсчётом и обновлением
+LOCK TABLE reviews IN SHARE MODE;
+
+UPDATE restaurants r SET
+    review_count = COALESCE(s.cnt, 0),
+    rating_sum = COALESCE(s.total, 0),
+    rating = COALESCE(ROUND(CAST(s.total AS numeric) / s.cnt, 1), 0),
+    stars_1 = COALESCE(s.s1, 0),
+    stars_2 = COALESCE(s.s2, 0),
+    stars_3 = COALESCE(s.s3, 0),
+    stars_4 = COALESCE(s.s4, 0),
+    stars_5 = COALESCE(s.s5, 0),
+    version = r.version + 1
+FROM restaurants r2
+LEFT JOIN (SELECT restaurant_id, COUNT(*) AS cnt, SUM(rating) AS total,
+                  COUNT(*) FILTER (WHERE rating = 1) AS s1,
+                  COUNT(*) FILTER (WHERE rating = 2) AS s2,
+                  COUNT(*) FILTER (WHERE rating = 3) AS s3,
+                  COUNT(*) FILTER (WHERE rating = 4) AS s4,
+                  COUNT(*) FILTER (WHERE rating = 5) AS s5
+           FROM reviews GROUP BY restaurant_id) s ON s.restaurant_id = r2.id
+WHERE r.id = r2.id
+  AND (r.review_count, r.rating_sum, r.rating, r.stars_1, r.stars_2, r.stars_3, r.stars_4, r.stars_5)
+      IS DISTINCT FROM (COALESCE(s.cnt, 0), COALESCE(s.total, 0), COALESCE(ROUND(CAST(s.total AS numeric) / s.cnt, 1), 0),
+                        COALESCE(s.s1, 0), COALESCE(s.s2, 0), COALESCE(s.s3, 0), COALESCE(s.s4, 0), COALESCE(s.s5, 0));
@@ -0,0 +1,65 @@
+package com.mediasoft.app;
+
+import com.mediasoft.limit.AdaptiveLimiter;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class AdaptiveLimiterTests {
+	private static final long FAST = TimeUnit.MILLISECONDS.toNanos(5);
+	private static final long SLOW = TimeUnit.MILLISECONDS.toNanos(200);
+
+	@Test
+	void limitGrowsUnderLoadWhileLatencyIsStable() {
+		AdaptiveLimiter limiter = new AdaptiveLimiter(20, 4, 200);
+		saturate(limiter, FAST, 50);
+		assertThat(limiter.getLimit()).isGreaterThan(20);
+	}
+
+	@Test
+	void limitShrinksWhenLatencyRises() {
+		AdaptiveLimiter limiter = new AdaptiveLimiter(20, 4, 200);
+		saturate(limiter, FAST, 50);
+		int warmLimit = limiter.getLimit();
+		saturate(limiter, SLOW, 3);
+		assertThat(limiter.getLimit()).isLessThan(warmLimit / 2);
+	}
+
+	@Test
+	void errorsBackOff() {
+		AdaptiveLimiter limiter = new AdaptiveLimiter(20, 4, 200);
+		for (int i = 0; i < 100; i++) {
+			assertThat(limiter.tryAcquire(1.0)).isTrue();
+			limiter.release(FAST, true);
+		}
+		assertThat(limiter.getLimit()).isEqualTo(4);
+	}
+
+	@Test
+	void bulkShareLeavesRoomForReads() {
+		AdaptiveLimiter limiter = new AdaptiveLimiter(10, 4, 200);
+		for (int i = 0; i < 5; i++) {
+			assertThat(limiter.tryAcquire(0.5)).isTrue();
+		}
+		assertThat(limiter.tryAcquire(0.5)).isFalse();
+		for (int i = 0; i < 5; i++) {
+			assertThat(limiter.tryAcquire(1.0)).isTrue();
+		}
+		assertThat(limiter.tryAcquire(1.0)).isFalse();
+	}
+
+	// лимит заполняется целиком, затем все запросы завершаются с одинаковой задержкой
+	private static void saturate(AdaptiveLimiter limiter, long rttNanos, int rounds) {
+		for (int round = 0; round < rounds; round++) {
+			int acquired = 0;
+			while (limiter.tryAcquire(1.0)) {
+				acquired++;
+			}
+			for (int i = 0; i < acquired; i++) {
+				limiter.release(rttNanos, false);
+			}
+		}
+	}
+}
@@ -0,0 +1,107 @@
+package com.mediasoft.app;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.dataformat.cbor.databind.CBORMapper;
+import com.fasterxml.jackson.dataformat.smile.databind.SmileMapper;
+import com.mediasoft.config.CacheConfig;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.cache.CacheManager;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// Один и тот же ресурс в JSON, CBOR и Smile по заголовкам Accept и Content-Type
+@SpringBootTest
+@AutoConfigureMockMvc
+class BinaryFormatsTests {
+	private static final long ID_OFFSET = 900_000_000L;
+	private static final long RESTAURANT = ID_OFFSET + 1;
+	private static final MediaType CBOR = MediaType.parseMediaType("application/cbor");
+	private static final MediaType SMILE = MediaType.parseMediaType("application/x-jackson-smile");
+
+	@Autowired
+	private MockMvc mockMvc;
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	@Autowired
+	private CacheManager cacheManager;
+
+	private final CBORMapper cborMapper = new CBORMapper();
+	private final SmileMapper smileMapper = new SmileMapper();
+
+	@BeforeEach
+	void seed() {
+		jdbcTemplate.update("""
+				INSERT INTO restaurants (id, name, description, cuisine_type, avg_check, rating)
+				VALUES (?, 'ресторан', 'описание', 'ITALIAN', 100, 4.5)
+				""", RESTAURANT);
+		// контекст общий с другими тестами, которые кладут в кэш свой ресторан с тем же id
+		cacheManager.getCache(CacheConfig.RESTAURANTS).evict(RESTAURANT);
+	}
+
+	@AfterEach
+	void cleanUp() {
+		jdbcTemplate.update("DELETE FROM restaurants WHERE id > ?", ID_OFFSET);
+		jdbcTemplate.update("DELETE FROM visitors WHERE name = 'smile visitor'");
+	}
+
+	@Test
+	void restaurantIsReadInEveryFormat() throws Exception {
+		MockHttpServletResponse json = read(MediaType.APPLICATION_JSON);
+		MockHttpServletResponse cbor = read(CBOR);
+		MockHttpServletResponse smile = read(SMILE);
+
+		JsonNode fromCbor = cborMapper.readTree(cbor.getContentAsByteArray());
+		JsonNode fromSmile = smileMapper.readTree(smile.getContentAsByteArray());
+		assertThat(fromCbor).isEqualTo(fromSmile);
+		assertThat(fromCbor.get("name").asText()).isEqualTo("ресторан");
+		assertThat(fromCbor.get("rating").decimalValue()).isEqualByComparingTo("4.5");
+		// у разных представлений одного URL разные ETag
+		assertThat(cbor.getHeader(HttpHeaders.ETAG))
+				.isNotEqualTo(json.getHeader(HttpHeaders.ETAG))
+				.isNotEqualTo(smile.getHeader(HttpHeaders.ETAG));
+		assertThat(cbor.getHeaders(HttpHeaders.VARY)).anyMatch(vary -> vary.contains(HttpHeaders.ACCEPT));
+	}
+
+	@Test
+	void visitorIsCreatedFromSmileBody() throws Exception {
+		byte[] body = smileMapper.writeValueAsBytes(Map.of("name", "smile visitor", "age", 33, "sex", "FEMALE"));
+
+		MockHttpServletResponse response = mockMvc.perform(post("/api/visitors")
+						.contentType(SMILE)
+						.accept(CBOR)
+						.content(body))
+				.andExpect(status().isOk())
+				.andExpect(content().contentTypeCompatibleWith(CBOR))
+				.andReturn().getResponse();
+
+		JsonNode created = cborMapper.readTree(response.getContentAsByteArray());
+		assertThat(created.get("name").asText()).isEqualTo("smile visitor");
+		assertThat(jdbcTemplate.queryForObject("SELECT age FROM visitors WHERE id = ?", Integer.class, created.get("id").asLong()))
+				.isEqualTo(33);
+	}
+
+	private MockHttpServletResponse read(MediaType mediaType) throws Exception {
+		return mockMvc.perform(get("/api/restaurants/{id}", RESTAURANT).accept(mediaType))
+				.andExpect(status().isOk())
+				.andExpect(content().contentTypeCompatibleWith(mediaType))
+				.andReturn().getResponse();
+	}
+}
@@ -0,0 +1,135 @@
+package com.mediasoft.app;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.math.BigDecimal;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.hamcrest.Matchers.hasItem;
+import static org.hamcrest.Matchers.notNullValue;
+import static org.hamcrest.Matchers.nullValue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// Пачка обрабатывается частично: ошибочные элементы получают свои ошибки, остальные сохраняются.
+// Созданные через API строки получают id из последовательности и удаляются по имени
+@SpringBootTest
+@AutoConfigureMockMvc
+class BulkIngestionTests {
+	private static final long ID_OFFSET = 900_000_000L;
+	private static final long RESTAURANT = ID_OFFSET + 1;
+	private static final long REVIEWER = ID_OFFSET + 1;
+	private static final long VISITOR = ID_OFFSET + 2;
+
+	@Autowired
+	private MockMvc mockMvc;
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	@BeforeEach
+	void seed() {
+		jdbcTemplate.update("""
+				INSERT INTO restaurants (id, name, description, cuisine_type, avg_check, rating, review_count, rating_sum, stars_4)
+				VALUES (?, 'restaurant', 'description', 'ITALIAN', 100, 4, 1, 4, 1)
+				""", RESTAURANT);
+		jdbcTemplate.update("""
+				INSERT INTO visitors (id, name, age, sex) VALUES (?, 'reviewer', 30, 'MALE'), (?, 'visitor', 25, 'FEMALE')
+				""", REVIEWER, VISITOR);
+		jdbcTemplate.update("INSERT INTO reviews (restaurant_id, visitor_id, rating, comment) VALUES (?, ?, 4, 'comment')",
+				RESTAURANT, REVIEWER);
+	}
+
+	@AfterEach
+	void cleanUp() {
+		jdbcTemplate.update("DELETE FROM reviews WHERE restaurant_id > ? OR visitor_id > ?", ID_OFFSET, ID_OFFSET);
+		jdbcTemplate.update("DELETE FROM visitors WHERE id > ? OR name LIKE 'bulk test%'", ID_OFFSET);
+		jdbcTemplate.update("DELETE FROM restaurants WHERE id > ? OR name LIKE 'bulk test%'", ID_OFFSET);
+	}
+
+	@Test
+	void restaurantsFailPerItem() throws Exception {
+		mockMvc.perform(post("/api/restaurants/bulk")
+						.contentType(MediaType.APPLICATION_JSON)
+						.content("""
+								[
+								  {"name":"bulk test 1","description":"d","cuisineType":"ITALIAN","avgCheck":100},
+								  {"name":"","description":"d","cuisineType":"ITALIAN","avgCheck":100},
+								  {"name":"bulk test 3","description":"d","cuisineType":"MEXICAN","avgCheck":100},
+								  {"name":"bulk test 4","description":"d","cuisineType":"RUSSIAN","avgCheck":50}
+								]
+								"""))
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$.total").value(4))
+				.andExpect(jsonPath("$.created").value(2))
+				.andExpect(jsonPath("$.failed").value(2))
+				.andExpect(jsonPath("$.items[0].created").value(true))
+				.andExpect(jsonPath("$.items[0].id").value(notNullValue()))
+				.andExpect(jsonPath("$.items[1].created").value(false))
+				.andExpect(jsonPath("$.items[1].errors").value(hasItem("Название ресторана не может быть пустым")))
+				.andExpect(jsonPath("$.items[2].id").value(nullValue()))
+				.andExpect(jsonPath("$.items[2].errors").value(hasItem("Неизвестный тип кухни: MEXICAN")))
+				.andExpect(jsonPath("$.items[3].index").value(3))
+				.andExpect(jsonPath("$.items[3].created").value(true));
+
+		assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM restaurants WHERE name LIKE 'bulk test%'", Long.class))
+				.isEqualTo(2);
+	}
+
+	@Test
+	void visitorsFromNdjson() throws Exception {
+		mockMvc.perform(post("/api/visitors/bulk")
+						.contentType(MediaType.APPLICATION_NDJSON)
+						.content("""
+								{"name":"bulk test 1","age":20,"sex":"MALE"}
+								{"name":"bulk test 2","age":-1,"sex":"FEMALE"}
+								{"name":"bulk test 3","age":40,"sex":"OTHER"}
+								"""))
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$.total").value(3))
+				.andExpect(jsonPath("$.created").value(1))
+				.andExpect(jsonPath("$.items[1].errors").value(hasItem("Возраст не может быть отрицательным")))
+				.andExpect(jsonPath("$.items[2].errors").value(hasItem("Неизвестный пол: OTHER")));
+	}
+
+	@Test
+	void reviewsFailPerItemAndUpdateAggregatesOnce() throws Exception {
+		mockMvc.perform(post("/api/reviews/bulk")
+						.contentType(MediaType.APPLICATION_JSON)
+						.content("""
+								[
+								  {"restaurantId":%1$d,"visitorId":%3$d,"rating":2,"comment":"new"},
+								  {"restaurantId":%1$d,"visitorId":%2$d,"rating":5,"comment":"already reviewed"},
+								  {"restaurantId":%1$d,"visitorId":%3$d,"rating":5,"comment":"repeated in batch"},
+								  {"restaurantId":%4$d,"visitorId":%3$d,"rating":5,"comment":"unknown restaurant"},
+								  {"restaurantId":%1$d,"visitorId":%3$d,"rating":7,"comment":"out of range"}
+								]
+								""".formatted(RESTAURANT, REVIEWER, VISITOR, ID_OFFSET + 99)))
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$.total").value(5))
+				.andExpect(jsonPath("$.created").value(1))
+				.andExpect(jsonPath("$.items[0].created").value(true))
+				.andExpect(jsonPath("$.items[1].errors").value(hasItem("Отзыв этого посетителя на этот ресторан уже существует")))
+				.andExpect(jsonPath("$.items[2].errors").value(hasItem("Отзыв этого посетителя на этот ресторан уже существует")))
+				.andExpect(jsonPath("$.items[3].errors").value(hasItem("Ресторан не найден: " + (ID_OFFSET + 99))))
+				.andExpect(jsonPath("$.items[4].errors").value(hasItem("Рейтинг должен быть от 1 до 5")));
+
+		Map<String, Object> restaurant = jdbcTemplate.queryForMap(
+				"SELECT review_count, rating_sum, rating, stars_2, stars_4 FROM restaurants WHERE id = ?", RESTAURANT);
+		assertThat(restaurant).containsEntry("review_count", 2L)
+				.containsEntry("rating_sum", 6L)
+				.containsEntry("stars_2", 1L)
+				.containsEntry("stars_4", 1L);
+		assertThat((BigDecimal) restaurant.get("rating")).isEqualByComparingTo("3.0");
+	}
+}
@@ -0,0 +1,112 @@
+package com.mediasoft.app;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.mediasoft.config.CacheConfig;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.cache.CacheManager;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.web.servlet.MockMvc;
+
+import static com.mediasoft.app.SqlBudget.statementsAtMost;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// Кэш Caffeine для чтения ресторана и посетителя по id: контекст общий с другими тестами, поэтому кэши
+// очищаются перед каждым тестом, а попадания считаются разницей статистики Caffeine
+@SpringBootTest
+@AutoConfigureMockMvc
+class CacheTests {
+	private static final long ID_OFFSET = 900_000_000L;
+	private static final long RESTAURANT = ID_OFFSET + 1;
+	private static final long VISITOR = ID_OFFSET + 1;
+
+	@Autowired
+	private MockMvc mockMvc;
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	@Autowired
+	private CacheManager cacheManager;
+
+	@BeforeEach
+	void seed() {
+		jdbcTemplate.update("""
+				INSERT INTO restaurants (id, name, description, cuisine_type, avg_check, rating)
+				VALUES (?, 'restaurant', 'description', 'ITALIAN', 100, 0)
+				""", RESTAURANT);
+		jdbcTemplate.update("INSERT INTO visitors (id, name, age, sex) VALUES (?, 'visitor', 30, 'MALE')", VISITOR);
+		cacheManager.getCache(CacheConfig.RESTAURANTS).clear();
+		cacheManager.getCache(CacheConfig.VISITORS).clear();
+	}
+
+	@AfterEach
+	void cleanUp() {
+		jdbcTemplate.update("DELETE FROM reviews WHERE restaurant_id > ? OR visitor_id > ?", ID_OFFSET, ID_OFFSET);
+		jdbcTemplate.update("DELETE FROM visitors WHERE id > ?", ID_OFFSET);
+		jdbcTemplate.update("DELETE FROM restaurants WHERE id > ?", ID_OFFSET);
+	}
+
+	@Test
+	void repeatedRestaurantReadIsServedFromCache() throws Exception {
+		long hits = hitCount(CacheConfig.RESTAURANTS);
+		mockMvc.perform(get("/api/restaurants/{id}", RESTAURANT))
+				.andExpect(status().isOk())
+				.andExpect(statementsAtMost(1));
+		mockMvc.perform(get("/api/restaurants/{id}", RESTAURANT))
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$.name").value("restaurant"))
+				.andExpect(statementsAtMost(0));
+
+		assertThat(hitCount(CacheConfig.RESTAURANTS) - hits).isEqualTo(1);
+	}
+
+	@Test
+	void restaurantUpdateEvictsCachedValue() throws Exception {
+		mockMvc.perform(get("/api/restaurants/{id}", RESTAURANT))
+				.andExpect(status().isOk());
+		mockMvc.perform(put("/api/restaurants/{id}", RESTAURANT)
+						.contentType(MediaType.APPLICATION_JSON)
+						.content("{\"name\":\"renamed\",\"description\":\"description\",\"cuisineType\":\"ITALIAN\",\"avgCheck\":100}"))
+				.andExpect(status().isOk());
+
+		assertThat(cacheManager.getCache(CacheConfig.RESTAURANTS).get(RESTAURANT)).isNull();
+		mockMvc.perform(get("/api/restaurants/{id}", RESTAURANT))
+				.andExpect(jsonPath("$.name").value("renamed"));
+	}
+
+	@Test
+	void visitorIsCachedAndEvictedOnDelete() throws Exception {
+		mockMvc.perform(get("/api/visitors/{id}", VISITOR))
+				.andExpect(status().isOk());
+		mockMvc.perform(get("/api/visitors/{id}", VISITOR))
+				.andExpect(jsonPath("$.name").value("visitor"))
+				.andExpect(statementsAtMost(0));
+
+		mockMvc.perform(delete("/api/visitors/{id}", VISITOR))
+				.andExpect(status().isOk());
+
+		assertThat(cacheManager.getCache(CacheConfig.VISITORS).get(VISITOR)).isNull();
+		// отсутствующий посетитель отдаётся пустым телом и в кэш не попадает
+		mockMvc.perform(get("/api/visitors/{id}", VISITOR))
+				.andExpect(content().string(""))
+				.andExpect(statementsAtMost(1));
+		assertThat(cacheManager.getCache(CacheConfig.VISITORS).get(VISITOR)).isNull();
+	}
+
+	@SuppressWarnings("unchecked")
+	private long hitCount(String name) {
+		return ((Cache<Object, Object>) cacheManager.getCache(name).getNativeCache()).stats().hitCount();
+	}
+}
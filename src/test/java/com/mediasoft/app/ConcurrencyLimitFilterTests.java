@@ -0,0 +1,80 @@
+package com.mediasoft.app;
+
+import com.mediasoft.limit.ConcurrencyLimitFilter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletResponse;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ConcurrencyLimitFilterTests {
+	private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+	private final ConcurrencyLimitFilter filter =
+			new ConcurrencyLimitFilter(meterRegistry, true, 20, 4, 200, 0.5, Duration.ofSeconds(1));
+
+	@Test
+	void ownServiceUnavailableDoesNotShrinkLimit() throws Exception {
+		for (int i = 0; i < 50; i++) {
+			perform("GET", "/api/restaurants/leaderboard/ITALIAN", respondWith(HttpServletResponse.SC_SERVICE_UNAVAILABLE));
+		}
+		assertThat(limit("restaurants")).isEqualTo(20);
+	}
+
+	@Test
+	void serverErrorsShrinkLimit() throws Exception {
+		for (int i = 0; i < 50; i++) {
+			perform("GET", "/api/restaurants/1", respondWith(HttpServletResponse.SC_INTERNAL_SERVER_ERROR));
+		}
+		assertThat(limit("restaurants")).isEqualTo(4);
+	}
+
+	@Test
+	void escapedExceptionsShrinkLimit() throws Exception {
+		FilterChain failing = (request, response) -> {
+			throw new ServletException("таймаут соединения");
+		};
+		for (int i = 0; i < 5; i++) {
+			assertThatThrownBy(() -> perform("GET", "/api/visitors/1", failing)).isInstanceOf(ServletException.class);
+		}
+		assertThat(limit("visitors")).isLessThan(20);
+		assertThat(inFlight("visitors")).isZero();
+	}
+
+	@Test
+	void exportImportAndSearchAreNotLimited() throws Exception {
+		for (String path : new String[]{"/api/export/reviews", "/api/import/reviews", "/api/search/reviews"}) {
+			MockHttpServletResponse response = perform("GET", path, respondWith(HttpServletResponse.SC_INTERNAL_SERVER_ERROR));
+			assertThat(response.getStatus()).isEqualTo(HttpServletResponse.SC_INTERNAL_SERVER_ERROR);
+		}
+		for (String group : new String[]{"restaurants", "visitors", "review_reads", "review_writes"}) {
+			assertThat(limit(group)).isEqualTo(20);
+		}
+	}
+
+	private MockHttpServletResponse perform(String method, String path, FilterChain chain) throws Exception {
+		MockHttpServletRequest request = new MockHttpServletRequest(method, path);
+		MockHttpServletResponse response = new MockHttpServletResponse();
+		filter.doFilter(request, response, chain);
+		return response;
+	}
+
+	private static FilterChain respondWith(int status) {
+		return (request, response) -> ((HttpServletResponse) response).setStatus(status);
+	}
+
+	private double limit(String group) {
+		return meterRegistry.get("http.concurrency.limit").tag("group", group).gauge().value();
+	}
+
+	private double inFlight(String group) {
+		return meterRegistry.get("http.concurrency.in.flight").tag("group", group).gauge().value();
+	}
+}
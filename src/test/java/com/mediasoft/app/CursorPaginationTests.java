@@ -0,0 +1,120 @@
+package com.mediasoft.app;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mediasoft.util.CursorCodec;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// Постраничный обход начинается с курсора ID_OFFSET, чтобы не зависеть от остальных строк базы
+@SpringBootTest
+@AutoConfigureMockMvc
+class CursorPaginationTests {
+	private static final long ID_OFFSET = 900_000_000L;
+
+	@Autowired
+	private MockMvc mockMvc;
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	@Autowired
+	private ObjectMapper objectMapper;
+
+	@BeforeEach
+	void seed() {
+		jdbcTemplate.update("""
+				INSERT INTO restaurants (id, name, description, cuisine_type, avg_check, rating)
+				SELECT ? + g, 'restaurant ' || g, 'description', 'ITALIAN', 100, 0 FROM generate_series(1, 5) g
+				""", ID_OFFSET);
+		jdbcTemplate.update("""
+				INSERT INTO visitors (id, name, age, sex)
+				SELECT ? + g, 'visitor ' || g, 30, 'MALE' FROM generate_series(1, 2) g
+				""", ID_OFFSET);
+		jdbcTemplate.update("""
+				INSERT INTO reviews (restaurant_id, visitor_id, rating, comment)
+				SELECT ? + r, ? + v, 3, 'comment' FROM generate_series(1, 2) r, generate_series(1, 2) v
+				""", ID_OFFSET, ID_OFFSET);
+	}
+
+	@AfterEach
+	void cleanUp() {
+		jdbcTemplate.update("DELETE FROM reviews WHERE restaurant_id > ? OR visitor_id > ?", ID_OFFSET, ID_OFFSET);
+		jdbcTemplate.update("DELETE FROM visitors WHERE id > ?", ID_OFFSET);
+		jdbcTemplate.update("DELETE FROM restaurants WHERE id > ?", ID_OFFSET);
+	}
+
+	@Test
+	void cursorRoundTrip() {
+		String cursor = CursorCodec.encode(ID_OFFSET + 1, ID_OFFSET + 2);
+
+		assertThat(CursorCodec.decodeLongs(cursor, 2)).containsExactly(ID_OFFSET + 1, ID_OFFSET + 2);
+		assertThat(cursor).doesNotContain("=", "+", "/");
+	}
+
+	@Test
+	void restaurantPagesEndWithoutCursor() throws Exception {
+		List<JsonNode> pages = walk("/api/restaurants", CursorCodec.encode(ID_OFFSET), 2);
+
+		assertThat(pages).hasSize(3);
+		assertThat(ids(pages, "id")).containsExactly(ID_OFFSET + 1, ID_OFFSET + 2, ID_OFFSET + 3, ID_OFFSET + 4, ID_OFFSET + 5);
+		assertThat(pages.get(2).get("nextCursor").isNull()).isTrue();
+	}
+
+	@Test
+	void fullLastPageHasNoCursor() throws Exception {
+		List<JsonNode> pages = walk("/api/visitors", CursorCodec.encode(ID_OFFSET), 2);
+
+		assertThat(pages).hasSize(1);
+		assertThat(ids(pages, "id")).containsExactly(ID_OFFSET + 1, ID_OFFSET + 2);
+	}
+
+	@Test
+	void reviewPagesFollowCompositeKey() throws Exception {
+		List<JsonNode> pages = walk("/api/reviews", CursorCodec.encode(ID_OFFSET, 0), 3);
+
+		assertThat(pages).hasSize(2);
+		assertThat(ids(pages, "restaurantId")).containsExactly(ID_OFFSET + 1, ID_OFFSET + 1, ID_OFFSET + 2, ID_OFFSET + 2);
+		assertThat(ids(pages, "visitorId")).containsExactly(ID_OFFSET + 1, ID_OFFSET + 2, ID_OFFSET + 1, ID_OFFSET + 2);
+	}
+
+	@Test
+	void malformedCursorIsRejected() throws Exception {
+		mockMvc.perform(get("/api/restaurants").param("cursor", "not a cursor"))
+				.andExpect(status().isBadRequest());
+		mockMvc.perform(get("/api/reviews").param("cursor", CursorCodec.encode(ID_OFFSET)))
+				.andExpect(status().isBadRequest());
+	}
+
+	private List<JsonNode> walk(String path, String cursor, int size) throws Exception {
+		List<JsonNode> pages = new ArrayList<>();
+		while (cursor != null) {
+			String body = mockMvc.perform(get(path).param("cursor", cursor).param("size", String.valueOf(size)))
+					.andExpect(status().isOk())
+					.andReturn().getResponse().getContentAsString();
+			JsonNode page = objectMapper.readTree(body);
+			pages.add(page);
+			cursor = page.get("nextCursor").isNull() ? null : page.get("nextCursor").asText();
+		}
+		return pages;
+	}
+
+	private static List<Long> ids(List<JsonNode> pages, String field) {
+		List<Long> ids = new ArrayList<>();
+		pages.forEach(page -> page.get("items").forEach(item -> ids.add(item.get(field).asLong())));
+		return ids;
+	}
+}
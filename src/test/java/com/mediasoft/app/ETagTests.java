@@ -0,0 +1,106 @@
+package com.mediasoft.app;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.ResultActions;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// ETag отдельных сущностей и страниц. Маркеры изменений списков по умолчанию выключены (app.etag.change-markers)
+@SpringBootTest
+@AutoConfigureMockMvc
+class ETagTests {
+	private static final long ID_OFFSET = 900_000_000L;
+	private static final long RESTAURANT = ID_OFFSET + 1;
+	private static final long VISITOR = ID_OFFSET + 1;
+
+	@Autowired
+	private MockMvc mockMvc;
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	@BeforeEach
+	void seed() {
+		jdbcTemplate.update("""
+				INSERT INTO restaurants (id, name, description, cuisine_type, avg_check, rating)
+				VALUES (?, 'restaurant', 'description', 'ITALIAN', 100, 0)
+				""", RESTAURANT);
+		jdbcTemplate.update("INSERT INTO visitors (id, name, age, sex) VALUES (?, 'visitor', 30, 'MALE')", VISITOR);
+	}
+
+	@AfterEach
+	void cleanUp() {
+		jdbcTemplate.update("DELETE FROM reviews WHERE restaurant_id > ? OR visitor_id > ?", ID_OFFSET, ID_OFFSET);
+		jdbcTemplate.update("DELETE FROM visitors WHERE id > ?", ID_OFFSET);
+		jdbcTemplate.update("DELETE FROM restaurants WHERE id > ?", ID_OFFSET);
+	}
+
+	@Test
+	void pagesHaveNoETagByDefault() throws Exception {
+		mockMvc.perform(get("/api/restaurants").param("size", "5"))
+				.andExpect(status().isOk())
+				.andExpect(header().doesNotExist(HttpHeaders.ETAG));
+		mockMvc.perform(get("/api/reviews").param("size", "5").header(HttpHeaders.IF_NONE_MATCH, "*"))
+				.andExpect(status().isOk())
+				.andExpect(header().doesNotExist(HttpHeaders.ETAG));
+	}
+
+	@Test
+	void recreatedReviewDoesNotMatchOldETag() throws Exception {
+		createReview(5, "great");
+		String oldETag = mockMvc.perform(get("/api/reviews/{restaurantId}/{visitorId}", RESTAURANT, VISITOR))
+				.andExpect(status().isOk())
+				.andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+		mockMvc.perform(delete("/api/reviews/{restaurantId}/{visitorId}", RESTAURANT, VISITOR))
+				.andExpect(status().is2xxSuccessful());
+		createReview(1, "awful");
+
+		mockMvc.perform(get("/api/reviews/{restaurantId}/{visitorId}", RESTAURANT, VISITOR)
+						.header(HttpHeaders.IF_NONE_MATCH, oldETag))
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$.rating").value(1))
+				.andExpect(jsonPath("$.comment").value("awful"));
+	}
+
+	@Test
+	void restaurantUpdateRereadsVersionChangedByRatingWrite() throws Exception {
+		updateRestaurant("first name");
+		// запись отзыва увеличивает version нативным запросом; кэш второго уровня хранит прежнюю версию
+		jdbcTemplate.update("UPDATE restaurants SET version = version + 1 WHERE id = ?", RESTAURANT);
+
+		updateRestaurant("second name")
+				.andExpect(jsonPath("$.name").value("second name"))
+				.andExpect(jsonPath("$.version").value(3));
+	}
+
+	private void createReview(int rating, String comment) throws Exception {
+		mockMvc.perform(post("/api/reviews")
+						.contentType(MediaType.APPLICATION_JSON)
+						.content("{\"restaurantId\":%d,\"visitorId\":%d,\"rating\":%d,\"comment\":\"%s\"}"
+								.formatted(RESTAURANT, VISITOR, rating, comment)))
+				.andExpect(status().is2xxSuccessful());
+	}
+
+	private ResultActions updateRestaurant(String name) throws Exception {
+		return mockMvc.perform(put("/api/restaurants/{id}", RESTAURANT)
+						.contentType(MediaType.APPLICATION_JSON)
+						.content("{\"name\":\"%s\",\"description\":\"d\",\"cuisineType\":\"ITALIAN\",\"avgCheck\":100}".formatted(name)))
+				.andExpect(status().isOk());
+	}
+}
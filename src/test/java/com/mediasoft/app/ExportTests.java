@@ -0,0 +1,143 @@
+package com.mediasoft.app;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mediasoft.export.ExportFormat;
+import com.mediasoft.service.ExportService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// Выгрузка ресторанов: в базе есть и свои рестораны, поэтому проверяются только строки с id за ID_OFFSET.
+// Выгрузку отзывов (миллион строк) тесты не гоняют, она идёт тем же кодом
+@SpringBootTest
+@AutoConfigureMockMvc
+class ExportTests {
+	private static final long ID_OFFSET = 900_000_000L;
+
+	@Autowired
+	private MockMvc mockMvc;
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	@Autowired
+	private ObjectMapper objectMapper;
+
+	@Autowired
+	private ExportService exportService;
+
+	@BeforeEach
+	void seed() {
+		jdbcTemplate.update("""
+				INSERT INTO restaurants (id, name, description, cuisine_type, avg_check, rating)
+				VALUES (?, 'plain', 'description', 'ITALIAN', 100, 4.5),
+				       (?, 'with, comma', 'say "hi"', 'RUSSIAN', 250, 3.0)
+				""", ID_OFFSET + 1, ID_OFFSET + 2);
+	}
+
+	@AfterEach
+	void cleanUp() {
+		jdbcTemplate.update("DELETE FROM restaurants WHERE id > ?", ID_OFFSET);
+	}
+
+	@Test
+	void ndjsonHasOneObjectPerRestaurant() throws Exception {
+		List<JsonNode> rows = new ArrayList<>();
+		for (String line : export("NDJSON", 1).split("\n")) {
+			JsonNode row = objectMapper.readTree(line);
+			if (row.get("id").asLong() > ID_OFFSET) {
+				rows.add(row);
+			}
+		}
+
+		assertThat(rows).extracting(row -> row.get("id").asLong()).containsExactly(ID_OFFSET + 1, ID_OFFSET + 2);
+		assertThat(rows.get(1).get("name").asText()).isEqualTo("with, comma");
+		assertThat(rows.get(1).get("cuisineType").asText()).isEqualTo("RUSSIAN");
+		assertThat(rows.get(1).get("avgCheck").decimalValue()).isEqualByComparingTo("250");
+	}
+
+	@Test
+	void csvHasHeaderAndQuotedFields() throws Exception {
+		String csv = export("CSV", 1);
+
+		assertThat(csv).startsWith("id,name,description,cuisineType,avgCheck,rating\r\n");
+		assertThat(csv).contains("\r\n" + (ID_OFFSET + 1) + ",plain,description,ITALIAN,100.00,4.50\r\n")
+				.contains("\r\n" + (ID_OFFSET + 2) + ",\"with, comma\",\"say \"\"hi\"\"\",RUSSIAN,250.00,3.00\r\n");
+	}
+
+	@Test
+	void parallelExportHasTheSameRows() throws Exception {
+		List<String> sequential = sorted(export("CSV", 1));
+		List<String> parallel = sorted(export("CSV", 4));
+
+		assertThat(parallel).isEqualTo(sequential);
+		assertThat(parallel).anyMatch(line -> line.startsWith((ID_OFFSET + 2) + ","));
+	}
+
+	@Test
+	void exportBeyondConnectionLimitIsRejected() throws Exception {
+		CountDownLatch writing = new CountDownLatch(1);
+		CountDownLatch release = new CountDownLatch(1);
+		// выгрузка держит разрешение на соединение, пока клиент не читает ответ
+		OutputStream stalledClient = new OutputStream() {
+			@Override
+			public void write(int b) {
+			}
+
+			@Override
+			public void write(byte[] b, int off, int len) {
+				writing.countDown();
+				try {
+					release.await(10, TimeUnit.SECONDS);
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+			}
+		};
+		CompletableFuture<Void> stalled = CompletableFuture.runAsync(
+				() -> exportService.exportRestaurants(ExportFormat.CSV, 1, stalledClient));
+		try {
+			assertThat(writing.await(10, TimeUnit.SECONDS)).isTrue();
+
+			// координатору и трём потокам не хватает соединений: отказ сразу, без очереди
+			mockMvc.perform(get("/api/export/restaurants").param("format", "CSV").param("workers", "4"))
+					.andExpect(status().isServiceUnavailable());
+			// последовательной выгрузке достаточно одного соединения
+			assertThat(export("CSV", 1)).contains("\r\n" + (ID_OFFSET + 1) + ",plain,");
+		} finally {
+			release.countDown();
+			stalled.get(10, TimeUnit.SECONDS);
+		}
+		assertThat(sorted(export("CSV", 4))).anyMatch(line -> line.startsWith((ID_OFFSET + 2) + ","));
+	}
+
+	private String export(String format, int workers) throws Exception {
+		return mockMvc.perform(get("/api/export/restaurants").param("format", format).param("workers", String.valueOf(workers)))
+				.andExpect(status().isOk())
+				.andExpect(header().exists("Content-Disposition"))
+				.andReturn().getResponse().getContentAsString(StandardCharsets.UTF_8);
+	}
+
+	private static List<String> sorted(String csv) {
+		return csv.lines().sorted().toList();
+	}
+}
@@ -0,0 +1,117 @@
+package com.mediasoft.app;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.math.BigDecimal;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// Импорт отзывов через COPY: отклонённые строки и повторы не вставляются и не попадают в агрегаты рейтинга
+@SpringBootTest
+@AutoConfigureMockMvc
+class ImportTests {
+	private static final long ID_OFFSET = 900_000_000L;
+	private static final long RESTAURANT = ID_OFFSET + 1;
+	private static final long OTHER_RESTAURANT = ID_OFFSET + 2;
+	private static final long REVIEWER = ID_OFFSET + 1;
+	private static final long VISITOR = ID_OFFSET + 2;
+	private static final long ANOTHER_VISITOR = ID_OFFSET + 3;
+
+	@Autowired
+	private MockMvc mockMvc;
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	@BeforeEach
+	void seed() {
+		jdbcTemplate.update("""
+				INSERT INTO restaurants (id, name, description, cuisine_type, avg_check, rating, review_count, rating_sum, stars_4)
+				VALUES (?, 'restaurant', 'description', 'ITALIAN', 100, 4, 1, 4, 1),
+				       (?, 'other', 'description', 'RUSSIAN', 100, 0, 0, 0, 0)
+				""", RESTAURANT, OTHER_RESTAURANT);
+		jdbcTemplate.update("""
+				INSERT INTO visitors (id, name, age, sex) VALUES (?, 'reviewer', 30, 'MALE'), (?, 'visitor', 25, 'FEMALE'),
+				                                                 (?, 'another', 40, 'MALE')
+				""", REVIEWER, VISITOR, ANOTHER_VISITOR);
+		jdbcTemplate.update("INSERT INTO reviews (restaurant_id, visitor_id, rating, comment) VALUES (?, ?, 4, 'comment')",
+				RESTAURANT, REVIEWER);
+	}
+
+	@AfterEach
+	void cleanUp() {
+		jdbcTemplate.update("DELETE FROM reviews WHERE restaurant_id > ? OR visitor_id > ?", ID_OFFSET, ID_OFFSET);
+		jdbcTemplate.update("DELETE FROM visitors WHERE id > ?", ID_OFFSET);
+		jdbcTemplate.update("DELETE FROM restaurants WHERE id > ?", ID_OFFSET);
+	}
+
+	@Test
+	void reviewsSkipRejectedAndDuplicateRowsInAggregates() throws Exception {
+		mockMvc.perform(post("/api/import/reviews")
+						.contentType("text/csv")
+						.content("""
+								restaurantId,visitorId,rating,comment
+								%1$d,%4$d,5,new
+								%1$d,%5$d,2,"new, with comma"
+								%1$d,%3$d,1,already reviewed
+								%1$d,%4$d,5,repeated in file
+								%1$d,abc,3,bad visitor id
+								%6$d,%4$d,5,unknown restaurant
+								%1$d,%5$d,9,out of range
+								%2$d,%5$d,3,other restaurant
+								""".formatted(RESTAURANT, OTHER_RESTAURANT, REVIEWER, VISITOR, ANOTHER_VISITOR, ID_OFFSET + 99)))
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$.total").value(8))
+				.andExpect(jsonPath("$.imported").value(3))
+				.andExpect(jsonPath("$.rejected").value(3))
+				.andExpect(jsonPath("$.duplicates").value(2))
+				.andExpect(jsonPath("$.errors[0].line").value(6))
+				.andExpect(jsonPath("$.errors[0].error").value("Некорректный id посетителя: abc"))
+				.andExpect(jsonPath("$.errors[1].error").value("Ресторан не найден: " + (ID_OFFSET + 99)))
+				.andExpect(jsonPath("$.errors[2].error").value("Рейтинг должен быть от 1 до 5"));
+
+		Map<String, Object> restaurant = jdbcTemplate.queryForMap(
+				"SELECT review_count, rating_sum, rating, stars_1, stars_2, stars_4, stars_5 FROM restaurants WHERE id = ?", RESTAURANT);
+		assertThat(restaurant).containsEntry("review_count", 3L)
+				.containsEntry("rating_sum", 11L)
+				.containsEntry("stars_1", 0L)
+				.containsEntry("stars_2", 1L)
+				.containsEntry("stars_4", 1L)
+				.containsEntry("stars_5", 1L);
+		assertThat((BigDecimal) restaurant.get("rating")).isEqualByComparingTo("3.7");
+
+		Map<String, Object> other = jdbcTemplate.queryForMap(
+				"SELECT review_count, rating_sum, rating FROM restaurants WHERE id = ?", OTHER_RESTAURANT);
+		assertThat(other).containsEntry("review_count", 1L).containsEntry("rating_sum", 3L);
+		assertThat((BigDecimal) other.get("rating")).isEqualByComparingTo("3.0");
+	}
+
+	@Test
+	void importWithoutNewRowsKeepsAggregates() throws Exception {
+		mockMvc.perform(post("/api/import/reviews")
+						.contentType("text/csv")
+						.content("""
+								restaurantId,visitorId,rating,comment
+								%d,%d,1,already reviewed
+								""".formatted(RESTAURANT, REVIEWER)))
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$.imported").value(0))
+				.andExpect(jsonPath("$.duplicates").value(1));
+
+		assertThat(jdbcTemplate.queryForMap("SELECT review_count, rating_sum, version FROM restaurants WHERE id = ?", RESTAURANT))
+				.containsEntry("review_count", 1L)
+				.containsEntry("rating_sum", 4L)
+				.containsEntry("version", 0L);
+	}
+}
@@ -0,0 +1,49 @@
+package com.mediasoft.app;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.actuate.observability.AutoConfigureObservability;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.web.servlet.MockMvc;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.hamcrest.Matchers.containsString;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// Таймеры сервисов и репозиториев после обычного запроса к API и их гистограммы в выдаче Prometheus
+@SpringBootTest
+@AutoConfigureMockMvc
+@AutoConfigureObservability
+class MetricsTests {
+	@Autowired
+	private MockMvc mockMvc;
+
+	@Autowired
+	private MeterRegistry meterRegistry;
+
+	@Test
+	void serviceAndRepositoryCallsAreTimed() throws Exception {
+		mockMvc.perform(get("/api/restaurants").param("size", "5"))
+				.andExpect(status().isOk());
+
+		Timer service = meterRegistry.get("app.service")
+				.tag("class", "com.mediasoft.service.impl.RestaurantService")
+				.tag("method", "getAll")
+				.timer();
+		assertThat(service.count()).isPositive();
+		assertThat(meterRegistry.get("spring.data.repository.invocations")
+				.tag("repository", "RestaurantRepository")
+				.timers())
+				.anyMatch(timer -> timer.count() > 0);
+
+		mockMvc.perform(get("/actuator/prometheus"))
+				.andExpect(status().isOk())
+				.andExpect(content().string(containsString("app_service_seconds_bucket")))
+				.andExpect(content().string(containsString("http_server_requests_seconds_bucket")));
+	}
+}
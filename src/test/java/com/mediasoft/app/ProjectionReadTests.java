@@ -0,0 +1,88 @@
+package com.mediasoft.app;
+
+import com.mediasoft.config.CacheConfig;
+import com.mediasoft.service.RestaurantService;
+import com.mediasoft.service.ReviewService;
+import com.mediasoft.service.VisitorService;
+import jakarta.persistence.EntityManager;
+import org.hibernate.Session;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.cache.CacheManager;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// Чтение идёт проекциями прямо в DTO: все методы чтения вызываются в одной транзакции,
+// после чего в контексте постоянства не должно остаться ни одной управляемой сущности
+@SpringBootTest
+class ProjectionReadTests {
+	private static final long ID_OFFSET = 900_000_000L;
+	private static final long RESTAURANT = ID_OFFSET + 1;
+	private static final long VISITOR = ID_OFFSET + 1;
+
+	@Autowired
+	private RestaurantService restaurantService;
+
+	@Autowired
+	private VisitorService visitorService;
+
+	@Autowired
+	private ReviewService reviewService;
+
+	@Autowired
+	private EntityManager entityManager;
+
+	@Autowired
+	private TransactionTemplate transactionTemplate;
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	@Autowired
+	private CacheManager cacheManager;
+
+	@BeforeEach
+	void seed() {
+		jdbcTemplate.update("""
+				INSERT INTO restaurants (id, name, description, cuisine_type, avg_check, rating, review_count, rating_sum, stars_4)
+				VALUES (?, 'restaurant', 'description', 'ITALIAN', 100, 4, 1, 4, 1)
+				""", RESTAURANT);
+		jdbcTemplate.update("INSERT INTO visitors (id, name, age, sex) VALUES (?, 'visitor', 30, 'MALE')", VISITOR);
+		jdbcTemplate.update("INSERT INTO reviews (restaurant_id, visitor_id, rating, comment) VALUES (?, ?, 4, 'comment')",
+				RESTAURANT, VISITOR);
+		// чтение по id должно дойти до репозитория, а не до кэша
+		cacheManager.getCache(CacheConfig.RESTAURANTS).clear();
+		cacheManager.getCache(CacheConfig.VISITORS).clear();
+	}
+
+	@AfterEach
+	void cleanUp() {
+		jdbcTemplate.update("DELETE FROM reviews WHERE restaurant_id > ? OR visitor_id > ?", ID_OFFSET, ID_OFFSET);
+		jdbcTemplate.update("DELETE FROM visitors WHERE id > ?", ID_OFFSET);
+		jdbcTemplate.update("DELETE FROM restaurants WHERE id > ?", ID_OFFSET);
+	}
+
+	@Test
+	void readsLeaveNoManagedEntities() {
+		transactionTemplate.executeWithoutResult(status -> {
+			assertThat(restaurantService.getById(RESTAURANT).getName()).isEqualTo("restaurant");
+			assertThat(restaurantService.getAll(null, 20).getItems()).isNotEmpty();
+			assertThat(restaurantService.getRatingDistribution(RESTAURANT).getReviewCount()).isEqualTo(1);
+			assertThat(visitorService.getById(VISITOR).getName()).isEqualTo("visitor");
+			assertThat(visitorService.getAll(null, 20).getItems()).isNotEmpty();
+			assertThat(reviewService.getById(VISITOR, RESTAURANT).getComment()).isEqualTo("comment");
+			assertThat(reviewService.getAll(null, 20).getItems()).isNotEmpty();
+			assertThat(reviewService.getByRestaurant(RESTAURANT, "desc", null, 20).getItems()).hasSize(1);
+			assertThat(reviewService.getByVisitor(VISITOR, "asc", null, 20).getItems()).hasSize(1);
+			assertThat(reviewService.getReviewsSortedByRatingDesc(PageRequest.of(0, 20)).getContent()).hasSize(20);
+
+			assertThat(entityManager.unwrap(Session.class).getStatistics().getEntityCount()).isZero();
+		});
+	}
+}
@@ -0,0 +1,95 @@
+package com.mediasoft.app;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.annotation.Transactional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// Данные вставляются в транзакции теста и откатываются после каждого метода
+@SpringBootTest
+@Transactional
+class QueryPlanTests {
+	private static final long ID_OFFSET = 900_000_000L;
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	@BeforeEach
+	void seed() {
+		jdbcTemplate.update("""
+				INSERT INTO restaurants (id, name, description, cuisine_type, avg_check, rating)
+				SELECT ? + g, 'restaurant ' || g, 'description', 'ITALIAN', 100, (g % 50) / 10.0
+				FROM generate_series(1, 10000) g
+				""", ID_OFFSET);
+		jdbcTemplate.update("""
+				INSERT INTO visitors (id, name, age, sex)
+				SELECT ? + g, 'visitor ' || g, 30, 'MALE' FROM generate_series(1, 100) g
+				""", ID_OFFSET);
+		jdbcTemplate.update("""
+				INSERT INTO reviews (restaurant_id, visitor_id, rating, comment)
+				SELECT ? + r, ? + v, 1 + (r + v) % 5, 'comment'
+				FROM generate_series(1, 1000) r, generate_series(1, 100) v
+				""", ID_OFFSET, ID_OFFSET);
+		jdbcTemplate.execute("ANALYZE restaurants");
+		jdbcTemplate.execute("ANALYZE visitors");
+		jdbcTemplate.execute("ANALYZE reviews");
+	}
+
+	@Test
+	void reviewsByRestaurantUseIndex() {
+		assertThat(explain("SELECT * FROM reviews WHERE restaurant_id = " + (ID_OFFSET + 7)))
+				.contains("Index")
+				.doesNotContain("Seq Scan");
+	}
+
+	@Test
+	void restaurantRatingAggregateUsesIndex() {
+		assertThat(explain("SELECT COUNT(*), SUM(rating) FROM reviews WHERE restaurant_id = " + (ID_OFFSET + 7)))
+				.contains("Index")
+				.doesNotContain("Seq Scan");
+	}
+
+	@Test
+	void reviewsByVisitorUseIndex() {
+		assertThat(explain("SELECT * FROM reviews WHERE visitor_id = " + (ID_OFFSET + 7)))
+				.contains("idx_reviews_visitor_rating")
+				.doesNotContain("Seq Scan");
+	}
+
+	@Test
+	void reviewFeedsSeekIndexWithoutSort() {
+		assertThat(explain("SELECT * FROM reviews WHERE restaurant_id = " + (ID_OFFSET + 7)
+				+ " AND (rating, visitor_id) < (3, " + (ID_OFFSET + 50) + ") ORDER BY rating DESC, visitor_id DESC LIMIT 21"))
+				.contains("Index Scan Backward using idx_reviews_restaurant_rating")
+				.doesNotContain("Sort");
+		assertThat(explain("SELECT * FROM reviews WHERE visitor_id = " + (ID_OFFSET + 7)
+				+ " AND (rating, restaurant_id) > (3, " + (ID_OFFSET + 50) + ") ORDER BY rating, restaurant_id LIMIT 21"))
+				.contains("Index Scan using idx_reviews_visitor_rating")
+				.doesNotContain("Sort");
+	}
+
+	@Test
+	void reviewsSortedByRatingUseIndex() {
+		assertThat(explain("SELECT * FROM reviews ORDER BY rating ASC OFFSET 100 LIMIT 20"))
+				.contains("idx_reviews_rating")
+				.doesNotContain("Sort");
+		assertThat(explain("SELECT * FROM reviews ORDER BY rating DESC OFFSET 100 LIMIT 20"))
+				.contains("Index Scan Backward using idx_reviews_rating")
+				.doesNotContain("Sort");
+	}
+
+	@Test
+	void restaurantsWithMinRatingUseIndex() {
+		assertThat(explain("SELECT * FROM restaurants WHERE rating >= 4.9"))
+				.contains("idx_restaurants_rating")
+				.doesNotContain("Seq Scan");
+	}
+
+	private String explain(String sql) {
+		return String.join("\n", jdbcTemplate.queryForList("EXPLAIN " + sql, String.class));
+	}
+}
@@ -0,0 +1,118 @@
+package com.mediasoft.app;
+
+import com.mediasoft.dto.RestaurantResponseDTO;
+import com.mediasoft.entity.CuisineType;
+import com.mediasoft.index.RestaurantLeaderboard;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.math.BigDecimal;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// Агрегаты рейтинга ресторана после операций, затрагивающих отзывы косвенно. Контекст общий с другими тестами,
+// которые оставляют в индексе свои версии ресторанов за 900_000_000, поэтому здесь отдельный диапазон id
+@SpringBootTest
+@AutoConfigureMockMvc
+class RatingAggregateTests {
+	private static final long ID_OFFSET = 900_100_000L;
+	private static final long RESTAURANT = ID_OFFSET + 1;
+	private static final long VISITOR = ID_OFFSET + 1;
+	private static final long OTHER_RESTAURANT = ID_OFFSET + 2;
+	private static final long OTHER_VISITOR = ID_OFFSET + 2;
+
+	@Autowired
+	private MockMvc mockMvc;
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	@Autowired
+	private RestaurantLeaderboard leaderboard;
+
+	@BeforeEach
+	void seed() {
+		jdbcTemplate.update("""
+				INSERT INTO restaurants (id, name, description, cuisine_type, avg_check, rating, review_count, rating_sum, stars_4)
+				VALUES (?, 'restaurant', 'description', 'ITALIAN', 100, 4, 1, 4, 1)
+				""", RESTAURANT);
+		jdbcTemplate.update("INSERT INTO visitors (id, name, age, sex) VALUES (?, 'visitor', 30, 'MALE')", VISITOR);
+		jdbcTemplate.update("INSERT INTO reviews (restaurant_id, visitor_id, rating, comment) VALUES (?, ?, 4, 'comment')",
+				RESTAURANT, VISITOR);
+	}
+
+	@AfterEach
+	void cleanUp() {
+		jdbcTemplate.update("DELETE FROM reviews WHERE restaurant_id > ? OR visitor_id > ?", ID_OFFSET, ID_OFFSET);
+		jdbcTemplate.update("DELETE FROM visitors WHERE id > ?", ID_OFFSET);
+		jdbcTemplate.update("DELETE FROM restaurants WHERE id > ?", ID_OFFSET);
+	}
+
+	@Test
+	void visitorUpdateKeepsReviewsAndAggregates() throws Exception {
+		mockMvc.perform(put("/api/visitors/{id}", VISITOR)
+						.contentType(MediaType.APPLICATION_JSON)
+						.content("{\"name\":\"renamed\",\"age\":31,\"sex\":\"FEMALE\"}"))
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$.name").value("renamed"))
+				.andExpect(jsonPath("$.age").value(31));
+
+		assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM reviews WHERE visitor_id = ?", Long.class, VISITOR))
+				.isEqualTo(1);
+		Map<String, Object> restaurant = jdbcTemplate.queryForMap(
+				"SELECT review_count, rating_sum, stars_4 FROM restaurants WHERE id = ?", RESTAURANT);
+		assertThat(restaurant).containsEntry("review_count", 1L)
+				.containsEntry("rating_sum", 4L)
+				.containsEntry("stars_4", 1L);
+	}
+
+	@Test
+	void visitorDeleteSubtractsExactlyItsReviews() throws Exception {
+		jdbcTemplate.update("""
+				INSERT INTO restaurants (id, name, description, cuisine_type, avg_check, rating, review_count, rating_sum, stars_2)
+				VALUES (?, 'other', 'description', 'RUSSIAN', 100, 2, 1, 2, 1)
+				""", OTHER_RESTAURANT);
+		jdbcTemplate.update("INSERT INTO visitors (id, name, age, sex) VALUES (?, 'other', 40, 'FEMALE')", OTHER_VISITOR);
+		jdbcTemplate.update("""
+				INSERT INTO reviews (restaurant_id, visitor_id, rating, comment) VALUES (?, ?, 2, 'other'), (?, ?, 5, 'other')
+				""", OTHER_RESTAURANT, VISITOR, RESTAURANT, OTHER_VISITOR);
+		jdbcTemplate.update("UPDATE restaurants SET review_count = 2, rating_sum = 9, rating = 4.5, stars_5 = 1 WHERE id = ?",
+				RESTAURANT);
+
+		mockMvc.perform(delete("/api/visitors/{id}", VISITOR))
+				.andExpect(status().is2xxSuccessful());
+
+		assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM reviews WHERE visitor_id = ?", Long.class, VISITOR))
+				.isZero();
+		Map<String, Object> restaurant = jdbcTemplate.queryForMap(
+				"SELECT review_count, rating_sum, rating, stars_4, stars_5 FROM restaurants WHERE id = ?", RESTAURANT);
+		assertThat(restaurant).containsEntry("review_count", 1L)
+				.containsEntry("rating_sum", 5L)
+				.containsEntry("stars_4", 0L)
+				.containsEntry("stars_5", 1L);
+		assertThat((BigDecimal) restaurant.get("rating")).isEqualByComparingTo("5.0");
+		Map<String, Object> other = jdbcTemplate.queryForMap(
+				"SELECT review_count, rating_sum, rating FROM restaurants WHERE id = ?", OTHER_RESTAURANT);
+		assertThat(other).containsEntry("review_count", 0L).containsEntry("rating_sum", 0L);
+		assertThat((BigDecimal) other.get("rating")).isEqualByComparingTo("0");
+
+		// событие об изменении уходит со строкой, пересчитанной тем же запросом
+		assertThat(leaderboard.top(CuisineType.ITALIAN, 2000))
+				.filteredOn(restaurantDTO -> restaurantDTO.getId() == RESTAURANT)
+				.extracting(RestaurantResponseDTO::getRating)
+				.singleElement()
+				.satisfies(rating -> assertThat(rating).isEqualByComparingTo("5.0"));
+	}
+}
@@ -0,0 +1,151 @@
+package com.mediasoft.app;
+
+import com.mediasoft.dto.RestaurantResponseDTO;
+import com.mediasoft.entity.CuisineType;
+import com.mediasoft.index.RestaurantLeaderboard;
+import com.mediasoft.rating.RatingRecomputeQueue;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// Планировщик с интервалом в час отрабатывает только при старте, очередь разбирается вызовом drain()
+@SpringBootTest(properties = {
+		"app.rating.async.enabled=true",
+		"app.rating.async.interval=3600000",
+		"app.rating.async.batch-size=2"
+})
+@AutoConfigureMockMvc
+class RatingRecomputeQueueTests {
+	private static final long ID_OFFSET = 900_000_000L;
+	private static final long RESTAURANT = ID_OFFSET + 1;
+
+	@Autowired
+	private MockMvc mockMvc;
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	@Autowired
+	private TransactionTemplate transactionTemplate;
+
+	@Autowired
+	private RatingRecomputeQueue queue;
+
+	@Autowired
+	private MeterRegistry meterRegistry;
+
+	@Autowired
+	private RestaurantLeaderboard leaderboard;
+
+	@BeforeEach
+	void seed() {
+		jdbcTemplate.update("""
+				INSERT INTO restaurants (id, name, description, cuisine_type, avg_check, rating)
+				SELECT ? + g, 'restaurant ' || g, 'description', 'ITALIAN', 100, 0 FROM generate_series(1, 5) g
+				""", ID_OFFSET);
+		jdbcTemplate.update("""
+				INSERT INTO visitors (id, name, age, sex)
+				SELECT ? + g, 'visitor ' || g, 30, 'MALE' FROM generate_series(1, 2) g
+				""", ID_OFFSET);
+		queue.drain();
+	}
+
+	@AfterEach
+	void cleanUp() {
+		queue.drain();
+		jdbcTemplate.update("DELETE FROM reviews WHERE restaurant_id > ? OR visitor_id > ?", ID_OFFSET, ID_OFFSET);
+		jdbcTemplate.update("DELETE FROM visitors WHERE id > ?", ID_OFFSET);
+		jdbcTemplate.update("DELETE FROM restaurants WHERE id > ?", ID_OFFSET);
+	}
+
+	@Test
+	void restaurantIsMarkedOnlyAfterCommit() {
+		transactionTemplate.executeWithoutResult(status -> {
+			queue.markDirty(RESTAURANT);
+			assertThat(depth()).isZero();
+		});
+		assertThat(depth()).isEqualTo(1);
+
+		transactionTemplate.executeWithoutResult(status -> {
+			queue.markDirty(RESTAURANT + 1);
+			status.setRollbackOnly();
+		});
+		assertThat(depth()).isEqualTo(1);
+	}
+
+	@Test
+	void queueIsDrainedInBatches() {
+		double batchesBefore = meterRegistry.get("rating.recompute.batch.size").summary().count();
+		for (long id = RESTAURANT; id < RESTAURANT + 5; id++) {
+			queue.markDirty(id);
+			// повторная пометка не ставит ресторан в очередь дважды
+			queue.markDirty(id);
+		}
+		assertThat(depth()).isEqualTo(5);
+		assertThat(lagSeconds()).isPositive();
+
+		queue.drain();
+
+		assertThat(depth()).isZero();
+		assertThat(lagSeconds()).isZero();
+		assertThat(meterRegistry.get("rating.recompute.batch.size").summary().count() - batchesBefore).isEqualTo(3);
+	}
+
+	@Test
+	void drainConvergesToSynchronousAggregates() throws Exception {
+		createReview(1, 4);
+		createReview(2, 5);
+
+		// запись отзыва только помечает ресторан, агрегаты ещё старые
+		assertThat(jdbcTemplate.queryForObject("SELECT review_count FROM restaurants WHERE id = ?", Long.class, RESTAURANT))
+				.isZero();
+		assertThat(depth()).isEqualTo(1);
+
+		queue.drain();
+
+		// те же значения, что синхронный путь записывает в RatingAggregateTests
+		Map<String, Object> restaurant = jdbcTemplate.queryForMap(
+				"SELECT review_count, rating_sum, rating, stars_4, stars_5 FROM restaurants WHERE id = ?", RESTAURANT);
+		assertThat(restaurant).containsEntry("review_count", 2L)
+				.containsEntry("rating_sum", 9L)
+				.containsEntry("stars_4", 1L)
+				.containsEntry("stars_5", 1L);
+		assertThat((BigDecimal) restaurant.get("rating")).isEqualByComparingTo("4.5");
+		assertThat(leaderboard.top(CuisineType.ITALIAN, 2000))
+				.filteredOn(restaurantDTO -> restaurantDTO.getId() == RESTAURANT)
+				.extracting(RestaurantResponseDTO::getRating)
+				.singleElement()
+				.satisfies(rating -> assertThat(rating).isEqualByComparingTo("4.5"));
+	}
+
+	private void createReview(long visitor, int rating) throws Exception {
+		mockMvc.perform(post("/api/reviews")
+						.contentType(MediaType.APPLICATION_JSON)
+						.content("{\"restaurantId\":%d,\"visitorId\":%d,\"rating\":%d,\"comment\":\"comment\"}"
+								.formatted(RESTAURANT, ID_OFFSET + visitor, rating)))
+				.andExpect(status().isOk());
+	}
+
+	private double depth() {
+		return meterRegistry.get("rating.recompute.queue.depth").gauge().value();
+	}
+
+	private double lagSeconds() {
+		return meterRegistry.get("rating.recompute.lag").gauge().value();
+	}
+}
@@ -0,0 +1,75 @@
+package com.mediasoft.app;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.web.servlet.MockMvc;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// Реплика указывает на ту же базу: проверяется только выбор источника по счётчикам маршрутизации
+@SpringBootTest(properties = {
+		"app.datasource.replica-urls=${spring.datasource.url}",
+		"app.datasource.read-your-writes-window=0s"
+})
+@AutoConfigureMockMvc
+class ReplicaRoutingTests {
+	private static final long ID_OFFSET = 900_000_000L;
+	private static final long RESTAURANT = ID_OFFSET + 1;
+
+	@Autowired
+	private MockMvc mockMvc;
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	@Autowired
+	private MeterRegistry meterRegistry;
+
+	@BeforeEach
+	void seed() {
+		jdbcTemplate.update("""
+				INSERT INTO restaurants (id, name, description, cuisine_type, avg_check, rating)
+				VALUES (?, 'restaurant', 'description', 'ITALIAN', 100, 0)
+				""", RESTAURANT);
+	}
+
+	@AfterEach
+	void cleanUp() {
+		jdbcTemplate.update("DELETE FROM restaurants WHERE id > ?", ID_OFFSET);
+	}
+
+	@Test
+	void readOnlyTransactionsUseReplica() throws Exception {
+		double before = routed("replica-1");
+		mockMvc.perform(get("/api/restaurants").param("size", "20"))
+				.andExpect(status().isOk());
+		mockMvc.perform(get("/api/restaurants/{id}/rating-distribution", RESTAURANT))
+				.andExpect(status().isOk());
+		assertThat(routed("replica-1") - before).isEqualTo(2);
+	}
+
+	@Test
+	void writesStayOnPrimary() throws Exception {
+		double before = routed("replica-1");
+		mockMvc.perform(put("/api/restaurants/{id}", RESTAURANT)
+						.contentType(MediaType.APPLICATION_JSON)
+						.content("{\"name\":\"changed\",\"description\":\"description\",\"cuisineType\":\"ITALIAN\",\"avgCheck\":100}"))
+				.andExpect(status().isOk());
+		assertThat(routed("replica-1")).isEqualTo(before);
+		assertThat(routed("primary")).isZero();
+	}
+
+	private double routed(String target) {
+		return meterRegistry.get("datasource.routed").tag("target", target).counter().count();
+	}
+}
@@ -0,0 +1,128 @@
+package com.mediasoft.app;
+
+import com.mediasoft.dto.FacetBucketDTO;
+import com.mediasoft.dto.RestaurantFacetsDTO;
+import com.mediasoft.dto.RestaurantResponseDTO;
+import com.mediasoft.entity.CuisineType;
+import com.mediasoft.event.RestaurantChangedEvent;
+import com.mediasoft.event.RestaurantDeletedEvent;
+import com.mediasoft.index.RestaurantFacetIndex;
+import com.mediasoft.index.RestaurantLeaderboard;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.ApplicationEventPublisher;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// События публикуются вне транзакции и сразу доходят до обоих индексов в памяти.
+// В индексах есть и рестораны из базы, поэтому счётчики фасетов сравниваются с замером до событий,
+// а удалённые id остаются надгробиями, поэтому каждый тест берёт новые id
+@SpringBootTest
+class RestaurantFacetIndexTests {
+	private static final AtomicLong NEXT_ID = new AtomicLong(900_500_000L);
+
+	@Autowired
+	private RestaurantFacetIndex facetIndex;
+
+	@Autowired
+	private RestaurantLeaderboard leaderboard;
+
+	@Autowired
+	private ApplicationEventPublisher publisher;
+
+	private final List<Long> ids = new ArrayList<>();
+
+	@BeforeEach
+	void allocateIds() {
+		for (int i = 0; i < 4; i++) {
+			ids.add(NEXT_ID.incrementAndGet());
+		}
+	}
+
+	@AfterEach
+	void cleanUp() {
+		ids.forEach(id -> publisher.publishEvent(new RestaurantDeletedEvent(id)));
+	}
+
+	@Test
+	void facetCountsIgnoreTheirOwnFilter() {
+		Set<CuisineType> italian = Set.of(CuisineType.ITALIAN);
+		BigDecimal maxAvgCheck = new BigDecimal("600");
+		RestaurantFacetsDTO before = facetIndex.filter(italian, null, maxAvgCheck, null, 20);
+
+		changed(ids.get(0), "ITALIAN", "100", "4.8", 0);
+		changed(ids.get(1), "ITALIAN", "700", "4.2", 0);
+		changed(ids.get(2), "RUSSIAN", "100", "4.6", 0);
+		changed(ids.get(3), "CHINESE", "2500", "3.2", 0);
+		RestaurantFacetsDTO after = facetIndex.filter(italian, null, maxAvgCheck, null, 20);
+
+		assertThat(after.getTotal() - before.getTotal()).isEqualTo(1);
+		assertThat(after.getCuisineTypes().get("ITALIAN") - before.getCuisineTypes().get("ITALIAN")).isEqualTo(1);
+		assertThat(after.getCuisineTypes().get("RUSSIAN") - before.getCuisineTypes().get("RUSSIAN")).isEqualTo(1);
+		assertThat(after.getCuisineTypes().get("CHINESE") - before.getCuisineTypes().get("CHINESE")).isZero();
+		assertThat(bucket(after.getAvgCheck(), "0") - bucket(before.getAvgCheck(), "0")).isEqualTo(1);
+		assertThat(bucket(after.getAvgCheck(), "500") - bucket(before.getAvgCheck(), "500")).isEqualTo(1);
+		assertThat(bucket(after.getRating(), "4.5") - bucket(before.getRating(), "4.5")).isEqualTo(1);
+		assertThat(bucket(after.getRating(), "4") - bucket(before.getRating(), "4")).isZero();
+	}
+
+	@Test
+	void itemsFollowRatingOrderForWideAndNarrowFilters() {
+		changed(ids.get(0), "ITALIAN", "100", "4.8", 0);
+		changed(ids.get(1), "ITALIAN", "700", "4.8", 0);
+		changed(ids.get(2), "RUSSIAN", "100", "4.9", 0);
+		changed(ids.get(3), "ITALIAN", "2500", "4.6", 0);
+
+		assertThat(itemIds(facetIndex.filter(Set.of(), null, null, null, 20)))
+				.isEqualTo(ids(leaderboard.withMinRating(BigDecimal.ZERO, null, 0L, 20)));
+		assertThat(itemIds(facetIndex.filter(Set.of(CuisineType.ITALIAN), null, null, null, 20)))
+				.isEqualTo(ids(leaderboard.top(CuisineType.ITALIAN, 20)));
+		assertThat(itemIds(facetIndex.filter(Set.of(CuisineType.ITALIAN), null, new BigDecimal("1000"), new BigDecimal("4.7"), 20)))
+				.filteredOn(ids::contains)
+				.containsExactly(ids.get(0), ids.get(1));
+	}
+
+	@Test
+	void staleAndDeletedSnapshotsAreIgnored() {
+		Set<CuisineType> russian = Set.of(CuisineType.RUSSIAN);
+		BigDecimal minRating = new BigDecimal("4.5");
+		changed(ids.get(0), "RUSSIAN", "100", "4.8", 2);
+		changed(ids.get(0), "RUSSIAN", "100", "3.0", 1);
+		changed(ids.get(1), "RUSSIAN", "100", "4.7", 0);
+		publisher.publishEvent(new RestaurantDeletedEvent(ids.get(1)));
+		changed(ids.get(1), "RUSSIAN", "100", "4.7", 5);
+
+		assertThat(itemIds(facetIndex.filter(russian, null, null, minRating, 100)))
+				.contains(ids.get(0))
+				.doesNotContain(ids.get(1));
+	}
+
+	private void changed(long id, String cuisineType, String avgCheck, String rating, long version) {
+		publisher.publishEvent(new RestaurantChangedEvent(new RestaurantResponseDTO(id, "restaurant " + id, "description",
+				cuisineType, new BigDecimal(avgCheck), new BigDecimal(rating), version)));
+	}
+
+	private static long bucket(List<FacetBucketDTO> buckets, String from) {
+		return buckets.stream()
+				.filter(bucket -> bucket.getFrom().compareTo(new BigDecimal(from)) == 0)
+				.findFirst().orElseThrow()
+				.getCount();
+	}
+
+	private static List<Long> itemIds(RestaurantFacetsDTO facets) {
+		return ids(facets.getItems());
+	}
+
+	private static List<Long> ids(List<RestaurantResponseDTO> restaurants) {
+		return restaurants.stream().map(RestaurantResponseDTO::getId).toList();
+	}
+}
@@ -0,0 +1,206 @@
+package com.mediasoft.app;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mediasoft.dto.RestaurantResponseDTO;
+import com.mediasoft.entity.CuisineType;
+import com.mediasoft.event.RestaurantChangedEvent;
+import com.mediasoft.event.RestaurantDeletedEvent;
+import com.mediasoft.index.RestaurantLeaderboard;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.StreamSupport;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static com.mediasoft.app.SqlBudget.statementsAtMost;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// События подаются в индекс напрямую, как их доставил бы слушатель после коммита.
+// Рестораны с id за ID_OFFSET в базе отсутствуют, из выдачи берутся только они. Контекст общий с другими тестами,
+// которые оставляют в индексе свои id за 900_000_000, поэтому здесь отдельный диапазон.
+// Удалённый id остаётся в индексе надгробием, поэтому каждый тест берёт новые id
+@SpringBootTest
+@AutoConfigureMockMvc
+class RestaurantLeaderboardTests {
+	private static final long ID_OFFSET = 900_700_000L;
+	private static final AtomicLong NEXT_ID = new AtomicLong(ID_OFFSET);
+	private static final BigDecimal MIN_RATING = new BigDecimal("4.5");
+
+	@Autowired
+	private RestaurantLeaderboard leaderboard;
+
+	@Autowired
+	private MockMvc mockMvc;
+
+	@Autowired
+	private ObjectMapper objectMapper;
+
+	private long first;
+	private long second;
+	private long third;
+
+	@BeforeEach
+	void allocateIds() {
+		first = NEXT_ID.incrementAndGet();
+		second = NEXT_ID.incrementAndGet();
+		third = NEXT_ID.incrementAndGet();
+	}
+
+	@AfterEach
+	void cleanUp() {
+		for (long id = first; id <= third; id++) {
+			leaderboard.onDeleted(new RestaurantDeletedEvent(id));
+		}
+	}
+
+	@Test
+	void updatesReorderAndDeletesRemove() {
+		changed(first, "ITALIAN", "4.5", 0);
+		changed(second, "ITALIAN", "4.8", 0);
+		changed(third, "ITALIAN", "4.6", 0);
+		assertThat(top(CuisineType.ITALIAN)).containsExactly(second, third, first);
+
+		changed(first, "ITALIAN", "4.9", 1);
+		assertThat(top(CuisineType.ITALIAN)).containsExactly(first, second, third);
+
+		changed(third, "RUSSIAN", "4.6", 1);
+		leaderboard.onDeleted(new RestaurantDeletedEvent(second));
+		assertThat(top(CuisineType.ITALIAN)).containsExactly(first);
+		assertThat(top(CuisineType.RUSSIAN)).containsExactly(third);
+	}
+
+	@Test
+	void equalRatingsOrderById() {
+		changed(third, "ITALIAN", "4.7", 0);
+		changed(first, "ITALIAN", "4.7", 0);
+		changed(second, "ITALIAN", "4.7", 0);
+
+		assertThat(top(CuisineType.ITALIAN)).containsExactly(first, second, third);
+	}
+
+	@Test
+	void staleSnapshotIsIgnored() {
+		changed(first, "ITALIAN", "4.9", 2);
+		changed(second, "ITALIAN", "4.5", 0);
+		changed(first, "ITALIAN", "4.1", 1);
+
+		assertThat(top(CuisineType.ITALIAN)).containsExactly(first, second);
+	}
+
+	@Test
+	void deletedRestaurantIsNotResurrected() {
+		changed(first, "ITALIAN", "4.9", 0);
+		leaderboard.onDeleted(new RestaurantDeletedEvent(first));
+		changed(first, "ITALIAN", "4.9", 3);
+
+		assertThat(top(CuisineType.ITALIAN)).isEmpty();
+	}
+
+	@Test
+	void minRatingFollowsUpdatesAndDeletes() {
+		changed(first, "ITALIAN", "4.6", 0);
+		changed(second, "RUSSIAN", "4.8", 0);
+		changed(third, "CHINESE", "4.7", 0);
+		assertThat(minRating(null, 0L)).containsExactly(second, third, first);
+		assertThat(minRating(new BigDecimal("4.8"), second)).containsExactly(third, first);
+
+		changed(first, "ITALIAN", "4.9", 1);
+		changed(third, "CHINESE", "4.2", 1);
+		assertThat(minRating(null, 0L)).containsExactly(first, second);
+
+		leaderboard.onDeleted(new RestaurantDeletedEvent(second));
+		assertThat(minRating(null, 0L)).containsExactly(first);
+		assertThat(minRating(new BigDecimal("4.9"), first)).isEmpty();
+	}
+
+	@Test
+	void legacyMinRatingPathsReturnPlainList() throws Exception {
+		changed(first, "ITALIAN", "4.6", 0);
+		changed(second, "RUSSIAN", "4.8", 0);
+		changed(third, "CHINESE", "4.1", 0);
+
+		for (String path : List.of("/api/restaurants/min-rating/convention", "/api/restaurants/min-rating/jpql")) {
+			JsonNode body = getJson(path, null);
+			assertThat(body.isArray()).isTrue();
+			assertThat(ids(body)).containsExactly(second, first);
+		}
+
+		List<Long> paged = new ArrayList<>();
+		String cursor = null;
+		do {
+			JsonNode page = getJson("/api/restaurants/min-rating", cursor);
+			paged.addAll(ids(page.get("items")));
+			cursor = page.get("nextCursor").isNull() ? null : page.get("nextCursor").asText();
+		} while (cursor != null);
+		assertThat(paged).containsExactly(second, first);
+	}
+
+	@Test
+	void legacyMinRatingListIsCapped() throws Exception {
+		List<Long> extra = new ArrayList<>();
+		try {
+			for (int i = 0; i < 1001; i++) {
+				long id = NEXT_ID.incrementAndGet();
+				extra.add(id);
+				changed(id, "AMERICAN", "4.9", 0);
+			}
+
+			JsonNode body = getJson("/api/restaurants/min-rating/convention", null);
+			assertThat(body.size()).isEqualTo(1000);
+			assertThat(body.get(999).get("rating").decimalValue()).isGreaterThanOrEqualTo(MIN_RATING);
+		} finally {
+			extra.forEach(id -> leaderboard.onDeleted(new RestaurantDeletedEvent(id)));
+		}
+	}
+
+	private JsonNode getJson(String path, String cursor) throws Exception {
+		MockHttpServletRequestBuilder request = get(path).param("rating", MIN_RATING.toPlainString()).param("size", "1");
+		if (cursor != null) {
+			request.param("cursor", cursor);
+		}
+		// индекс заменил кэш запросов min-rating: повторные пороги по-прежнему не доходят до Postgres
+		String body = mockMvc.perform(request)
+				.andExpect(status().isOk())
+				.andExpect(statementsAtMost(0))
+				.andReturn().getResponse().getContentAsString();
+		return objectMapper.readTree(body);
+	}
+
+	private static List<Long> ids(JsonNode restaurants) {
+		return StreamSupport.stream(restaurants.spliterator(), false)
+				.map(restaurant -> restaurant.get("id").asLong())
+				.filter(id -> id > ID_OFFSET)
+				.toList();
+	}
+
+	private List<Long> minRating(BigDecimal afterRating, long afterId) {
+		return leaderboard.withMinRating(MIN_RATING, afterRating, afterId, 100).stream()
+				.map(RestaurantResponseDTO::getId)
+				.filter(id -> id > ID_OFFSET)
+				.toList();
+	}
+
+	private void changed(long id, String cuisineType, String rating, long version) {
+		leaderboard.onChanged(new RestaurantChangedEvent(new RestaurantResponseDTO(id, "restaurant " + id, "description",
+				cuisineType, new BigDecimal("100"), new BigDecimal(rating), version)));
+	}
+
+	private List<Long> top(CuisineType cuisineType) {
+		return leaderboard.top(cuisineType, 100).stream()
+				.map(RestaurantResponseDTO::getId)
+				.filter(id -> id > ID_OFFSET)
+				.toList();
+	}
+}
@@ -0,0 +1,111 @@
+package com.mediasoft.app;
+
+import com.mediasoft.dto.RestaurantResponseDTO;
+import com.mediasoft.entity.CuisineType;
+import com.mediasoft.index.RestaurantLeaderboard;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.ResultActions;
+
+import java.math.BigDecimal;
+import java.util.Map;
+
+import static com.mediasoft.app.SqlBudget.statementsAtMost;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// Создание отзыва одним запросом: вставка и пересчёт агрегатов ресторана в одном операторе.
+// Отдельный диапазон id, чтобы версия ресторана в общем индексе не осталась от других тестов
+@SpringBootTest
+@AutoConfigureMockMvc
+class ReviewCreateTests {
+	private static final long ID_OFFSET = 900_200_000L;
+	private static final long RESTAURANT = ID_OFFSET + 1;
+	private static final long REVIEWER = ID_OFFSET + 1;
+	private static final long VISITOR = ID_OFFSET + 2;
+
+	@Autowired
+	private MockMvc mockMvc;
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	@Autowired
+	private RestaurantLeaderboard leaderboard;
+
+	@BeforeEach
+	void seed() {
+		jdbcTemplate.update("""
+				INSERT INTO restaurants (id, name, description, cuisine_type, avg_check, rating, review_count, rating_sum, stars_4)
+				VALUES (?, 'restaurant', 'description', 'ITALIAN', 100, 4, 1, 4, 1)
+				""", RESTAURANT);
+		jdbcTemplate.update("""
+				INSERT INTO visitors (id, name, age, sex) VALUES (?, 'reviewer', 30, 'MALE'), (?, 'visitor', 25, 'FEMALE')
+				""", REVIEWER, VISITOR);
+		jdbcTemplate.update("INSERT INTO reviews (restaurant_id, visitor_id, rating, comment) VALUES (?, ?, 4, 'comment')",
+				RESTAURANT, REVIEWER);
+	}
+
+	@AfterEach
+	void cleanUp() {
+		jdbcTemplate.update("DELETE FROM reviews WHERE restaurant_id > ? OR visitor_id > ?", ID_OFFSET, ID_OFFSET);
+		jdbcTemplate.update("DELETE FROM visitors WHERE id > ?", ID_OFFSET);
+		jdbcTemplate.update("DELETE FROM restaurants WHERE id > ?", ID_OFFSET);
+	}
+
+	@Test
+	void reviewAndAggregatesAreWrittenByOneStatement() throws Exception {
+		create(RESTAURANT, VISITOR, 5)
+				.andExpect(status().isOk())
+				.andExpect(statementsAtMost(1));
+
+		assertThat(jdbcTemplate.queryForObject("SELECT rating FROM reviews WHERE restaurant_id = ? AND visitor_id = ?",
+				Integer.class, RESTAURANT, VISITOR)).isEqualTo(5);
+		Map<String, Object> restaurant = jdbcTemplate.queryForMap(
+				"SELECT review_count, rating_sum, rating, stars_4, stars_5, version FROM restaurants WHERE id = ?", RESTAURANT);
+		assertThat(restaurant).containsEntry("review_count", 2L)
+				.containsEntry("rating_sum", 9L)
+				.containsEntry("stars_4", 1L)
+				.containsEntry("stars_5", 1L)
+				.containsEntry("version", 1L);
+		assertThat((BigDecimal) restaurant.get("rating")).isEqualByComparingTo("4.5");
+		// событие уходит со строкой, которую вернул тот же оператор
+		assertThat(leaderboard.top(CuisineType.ITALIAN, 2000))
+				.filteredOn(restaurantDTO -> restaurantDTO.getId() == RESTAURANT)
+				.extracting(RestaurantResponseDTO::getRating)
+				.singleElement()
+				.satisfies(rating -> assertThat(rating).isEqualByComparingTo("4.5"));
+	}
+
+	@Test
+	void repeatedReviewIsRejectedWithoutTouchingAggregates() throws Exception {
+		create(RESTAURANT, REVIEWER, 1)
+				.andExpect(status().isConflict());
+
+		assertThat(jdbcTemplate.queryForMap("SELECT review_count, rating_sum, version FROM restaurants WHERE id = ?", RESTAURANT))
+				.containsEntry("review_count", 1L)
+				.containsEntry("rating_sum", 4L)
+				.containsEntry("version", 0L);
+	}
+
+	@Test
+	void reviewOfUnknownRestaurantIsNotFound() throws Exception {
+		create(ID_OFFSET + 99, VISITOR, 5)
+				.andExpect(status().isNotFound());
+	}
+
+	private ResultActions create(long restaurantId, long visitorId, int rating) throws Exception {
+		return mockMvc.perform(post("/api/reviews")
+				.contentType(MediaType.APPLICATION_JSON)
+				.content("{\"restaurantId\":%d,\"visitorId\":%d,\"rating\":%d,\"comment\":\"ok\"}"
+						.formatted(restaurantId, visitorId, rating)));
+	}
+}
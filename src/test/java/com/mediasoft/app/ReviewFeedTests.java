@@ -0,0 +1,135 @@
+package com.mediasoft.app;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// Ленты отзывов ресторана и посетителя с ключом (rating, id второй стороны): одинаковые оценки
+// специально попадают на границы страниц размера 2
+@SpringBootTest
+@AutoConfigureMockMvc
+class ReviewFeedTests {
+	private static final long ID_OFFSET = 900_000_000L;
+	private static final long RESTAURANT = ID_OFFSET + 1;
+	private static final long VISITOR = ID_OFFSET + 1;
+
+	@Autowired
+	private MockMvc mockMvc;
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	@Autowired
+	private ObjectMapper objectMapper;
+
+	@BeforeEach
+	void seed() {
+		jdbcTemplate.update("""
+				INSERT INTO restaurants (id, name, description, cuisine_type, avg_check, rating)
+				SELECT ? + g, 'restaurant ' || g, 'description', 'ITALIAN', 100, 0 FROM generate_series(1, 5) g
+				""", ID_OFFSET);
+		jdbcTemplate.update("""
+				INSERT INTO visitors (id, name, age, sex)
+				SELECT ? + g, 'visitor ' || g, 30, 'MALE' FROM generate_series(1, 7) g
+				""", ID_OFFSET);
+		// отзывы ресторана 1 от посетителей 1..7 и отзывы посетителя 1 на рестораны 2..5
+		jdbcTemplate.update("""
+				INSERT INTO reviews (restaurant_id, visitor_id, rating, comment)
+				SELECT ? + 1, ? + v, r, 'comment'
+				FROM unnest(ARRAY[1, 2, 3, 4, 5, 6, 7], ARRAY[3, 5, 3, 1, 5, 3, 2]) AS t(v, r)
+				""", ID_OFFSET, ID_OFFSET);
+		jdbcTemplate.update("""
+				INSERT INTO reviews (restaurant_id, visitor_id, rating, comment)
+				SELECT ? + g, ? + 1, r, 'comment'
+				FROM unnest(ARRAY[2, 3, 4, 5], ARRAY[4, 4, 2, 4]) AS t(g, r)
+				""", ID_OFFSET, ID_OFFSET);
+	}
+
+	@AfterEach
+	void cleanUp() {
+		jdbcTemplate.update("DELETE FROM reviews WHERE restaurant_id > ? OR visitor_id > ?", ID_OFFSET, ID_OFFSET);
+		jdbcTemplate.update("DELETE FROM visitors WHERE id > ?", ID_OFFSET);
+		jdbcTemplate.update("DELETE FROM restaurants WHERE id > ?", ID_OFFSET);
+	}
+
+	@Test
+	void restaurantFeedAscendingBreaksTiesByVisitor() throws Exception {
+		List<List<Long>> pages = walk("/api/restaurants/{id}/reviews", RESTAURANT, "asc", 2, "visitorId");
+
+		assertThat(pages).containsExactly(ids(4, 7), ids(1, 3), ids(6, 2), ids(5));
+	}
+
+	@Test
+	void restaurantFeedDescendingStartsFromTheTop() throws Exception {
+		List<List<Long>> pages = walk("/api/restaurants/{id}/reviews", RESTAURANT, "desc", 2, "visitorId");
+
+		assertThat(pages).containsExactly(ids(5, 2), ids(6, 3), ids(1, 7), ids(4));
+	}
+
+	@Test
+	void visitorFeedBreaksTiesByRestaurantInBothDirections() throws Exception {
+		assertThat(walk("/api/visitors/{id}/reviews", VISITOR, "asc", 2, "restaurantId"))
+				.containsExactly(ids(4, 1), ids(2, 3), ids(5));
+		assertThat(walk("/api/visitors/{id}/reviews", VISITOR, "desc", 2, "restaurantId"))
+				.containsExactly(ids(5, 3), ids(2, 1), ids(4));
+	}
+
+	@Test
+	void fullPageWithoutMoreRowsHasNoCursor() throws Exception {
+		assertThat(walk("/api/restaurants/{id}/reviews", RESTAURANT, "desc", 7, "visitorId"))
+				.containsExactly(ids(5, 2, 6, 3, 1, 7, 4));
+		assertThat(walk("/api/visitors/{id}/reviews", VISITOR, "asc", 5, "restaurantId"))
+				.containsExactly(ids(4, 1, 2, 3, 5));
+	}
+
+	@Test
+	void badSortAndCursorAreRejected() throws Exception {
+		mockMvc.perform(get("/api/restaurants/{id}/reviews", RESTAURANT).param("sort", "sideways"))
+				.andExpect(status().isBadRequest());
+		mockMvc.perform(get("/api/visitors/{id}/reviews", VISITOR).param("cursor", "not-a-cursor"))
+				.andExpect(status().isBadRequest());
+	}
+
+	// страницы ленты целиком, каждая — id второй стороны отзыва в порядке выдачи
+	private List<List<Long>> walk(String path, long id, String sort, int size, String otherId) throws Exception {
+		List<List<Long>> pages = new ArrayList<>();
+		String cursor = null;
+		do {
+			MockHttpServletRequestBuilder request = get(path, id).param("sort", sort).param("size", String.valueOf(size));
+			if (cursor != null) {
+				request.param("cursor", cursor);
+			}
+			JsonNode page = objectMapper.readTree(mockMvc.perform(request)
+					.andExpect(status().isOk())
+					.andReturn().getResponse().getContentAsString());
+			List<Long> ids = new ArrayList<>();
+			page.get("items").forEach(review -> ids.add(review.get(otherId).asLong()));
+			pages.add(ids);
+			cursor = page.get("nextCursor").isNull() ? null : page.get("nextCursor").asText();
+		} while (cursor != null);
+		return pages;
+	}
+
+	private static List<Long> ids(long... offsets) {
+		List<Long> ids = new ArrayList<>();
+		for (long offset : offsets) {
+			ids.add(ID_OFFSET + offset);
+		}
+		return ids;
+	}
+}
@@ -0,0 +1,130 @@
+package com.mediasoft.app;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// Поиск по словам, которых нет в остальной базе: одинаковые тексты дают равный ts_rank,
+// и порядок внутри ранга держится только на ключе из курсора
+@SpringBootTest
+@AutoConfigureMockMvc
+class SearchTests {
+	private static final long ID_OFFSET = 900_000_000L;
+	private static final long RESTAURANT = ID_OFFSET + 1;
+	private static final long OTHER_RESTAURANT = ID_OFFSET + 2;
+
+	@Autowired
+	private MockMvc mockMvc;
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	@Autowired
+	private ObjectMapper objectMapper;
+
+	@BeforeEach
+	void seed() {
+		jdbcTemplate.update("""
+				INSERT INTO restaurants (id, name, description, cuisine_type, avg_check, rating)
+				SELECT ? + g, 'zorbulon', 'description', 'ITALIAN', 100, 0 FROM generate_series(1, 5) g
+				""", ID_OFFSET);
+		jdbcTemplate.update("""
+				INSERT INTO restaurants (id, name, description, cuisine_type, avg_check, rating)
+				VALUES (?, 'plain', 'only the description mentions kwimbly', 'ITALIAN', 100, 0),
+				       (?, 'kwimbly', 'description', 'ITALIAN', 100, 0)
+				""", ID_OFFSET + 6, ID_OFFSET + 7);
+		jdbcTemplate.update("""
+				INSERT INTO visitors (id, name, age, sex)
+				SELECT ? + g, 'visitor ' || g, 30, 'MALE' FROM generate_series(1, 3) g
+				""", ID_OFFSET);
+		jdbcTemplate.update("""
+				INSERT INTO reviews (restaurant_id, visitor_id, rating, comment)
+				SELECT ? + r, ? + v, 3, 'frimbast soup' FROM generate_series(1, 2) r, generate_series(1, 3) v
+				""", ID_OFFSET, ID_OFFSET);
+	}
+
+	@AfterEach
+	void cleanUp() {
+		jdbcTemplate.update("DELETE FROM reviews WHERE restaurant_id > ? OR visitor_id > ?", ID_OFFSET, ID_OFFSET);
+		jdbcTemplate.update("DELETE FROM visitors WHERE id > ?", ID_OFFSET);
+		jdbcTemplate.update("DELETE FROM restaurants WHERE id > ?", ID_OFFSET);
+	}
+
+	@Test
+	void equalRanksAreSplitAcrossPagesById() throws Exception {
+		List<JsonNode> hits = walk(() -> get("/api/search/restaurants").param("q", "zorbulon"), 2);
+
+		assertThat(hits).extracting(hit -> hit.get("id").asLong())
+				.containsExactly(ID_OFFSET + 1, ID_OFFSET + 2, ID_OFFSET + 3, ID_OFFSET + 4, ID_OFFSET + 5);
+	}
+
+	@Test
+	void nameOutranksDescription() throws Exception {
+		List<JsonNode> hits = walk(() -> get("/api/search/restaurants").param("q", "kwimbly"), 1);
+
+		assertThat(hits).extracting(hit -> hit.get("id").asLong()).containsExactly(ID_OFFSET + 7, ID_OFFSET + 6);
+	}
+
+	@Test
+	void equalReviewRanksAreSplitAcrossPagesByKey() throws Exception {
+		List<JsonNode> hits = walk(() -> get("/api/search/reviews").param("q", "frimbast"), 4);
+
+		assertThat(hits).extracting(hit -> hit.get("restaurantId").asLong() + ":" + hit.get("visitorId").asLong())
+				.containsExactly(key(RESTAURANT, 1), key(RESTAURANT, 2), key(RESTAURANT, 3),
+						key(OTHER_RESTAURANT, 1), key(OTHER_RESTAURANT, 2), key(OTHER_RESTAURANT, 3));
+	}
+
+	@Test
+	void reviewSearchCanBeScopedToRestaurant() throws Exception {
+		List<JsonNode> hits = walk(() -> get("/api/search/reviews").param("q", "frimbast")
+				.param("restaurantId", String.valueOf(OTHER_RESTAURANT)), 2);
+
+		assertThat(hits).extracting(hit -> hit.get("visitorId").asLong())
+				.containsExactly(ID_OFFSET + 1, ID_OFFSET + 2, ID_OFFSET + 3);
+	}
+
+	@Test
+	void blankQueryIsRejected() throws Exception {
+		mockMvc.perform(get("/api/search/restaurants").param("q", " "))
+				.andExpect(status().isBadRequest());
+	}
+
+	// request строит новый запрос на каждую страницу: параметры в MockHttpServletRequestBuilder накапливаются
+	private List<JsonNode> walk(Supplier<MockHttpServletRequestBuilder> request, int size) throws Exception {
+		List<JsonNode> hits = new ArrayList<>();
+		String cursor = null;
+		do {
+			MockHttpServletRequestBuilder builder = request.get().param("size", String.valueOf(size));
+			if (cursor != null) {
+				builder.param("cursor", cursor);
+			}
+			JsonNode page = objectMapper.readTree(mockMvc.perform(builder)
+					.andExpect(status().isOk())
+					.andReturn().getResponse().getContentAsString());
+			assertThat(page.get("items").size()).isLessThanOrEqualTo(size);
+			page.get("items").forEach(hits::add);
+			cursor = page.get("nextCursor").isNull() ? null : page.get("nextCursor").asText();
+		} while (cursor != null);
+		return hits;
+	}
+
+	private static String key(long restaurantId, long visitor) {
+		return restaurantId + ":" + (ID_OFFSET + visitor);
+	}
+}
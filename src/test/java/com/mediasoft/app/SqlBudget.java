@@ -0,0 +1,26 @@
+package com.mediasoft.app;
+
+import com.mediasoft.sql.SqlStatistics;
+import org.springframework.test.web.servlet.ResultMatcher;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// Бюджет SQL-запросов на HTTP-запрос по заголовкам SqlStatisticsFilter:
+// mockMvc.perform(...).andExpect(SqlBudget.statementsAtMost(1))
+final class SqlBudget {
+
+	private SqlBudget() {
+	}
+
+	static ResultMatcher statementsAtMost(int budget) {
+		return result -> {
+			String statements = result.getResponse().getHeader(SqlStatistics.STATEMENTS_HEADER);
+			assertThat(statements)
+					.as("заголовок %s", SqlStatistics.STATEMENTS_HEADER)
+					.isNotNull();
+			assertThat(Integer.parseInt(statements))
+					.as("SQL-запросы для %s %s", result.getRequest().getMethod(), result.getRequest().getRequestURI())
+					.isLessThanOrEqualTo(budget);
+		};
+	}
+}
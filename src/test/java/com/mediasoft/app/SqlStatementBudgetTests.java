@@ -0,0 +1,155 @@
+package com.mediasoft.app;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.web.servlet.MockMvc;
+
+import static com.mediasoft.app.SqlBudget.statementsAtMost;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// Бюджеты зафиксированы по текущему числу запросов: рост означает регрессию вроде N+1.
+// Запросы коммитятся, иначе flush при коммите не попал бы в счётчик, поэтому данные удаляются вручную.
+// Маркеры изменений включены, как при одном экземпляре приложения, чтобы проверить 304 для страниц
+@SpringBootTest(properties = "app.etag.change-markers=true")
+@AutoConfigureMockMvc
+class SqlStatementBudgetTests {
+	private static final long ID_OFFSET = 900_000_000L;
+	private static final long RESTAURANT = ID_OFFSET + 1;
+	private static final long REVIEWER = ID_OFFSET + 1;
+	private static final long VISITOR = ID_OFFSET + 2;
+
+	@Autowired
+	private MockMvc mockMvc;
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	@BeforeEach
+	void seed() {
+		jdbcTemplate.update("""
+				INSERT INTO restaurants (id, name, description, cuisine_type, avg_check, rating, review_count, rating_sum, stars_4)
+				VALUES (?, 'restaurant', 'description', 'ITALIAN', 100, 4, 1, 4, 1)
+				""", RESTAURANT);
+		jdbcTemplate.update("""
+				INSERT INTO visitors (id, name, age, sex) VALUES (?, 'reviewer', 30, 'MALE'), (?, 'visitor', 25, 'FEMALE')
+				""", REVIEWER, VISITOR);
+		jdbcTemplate.update("INSERT INTO reviews (restaurant_id, visitor_id, rating, comment) VALUES (?, ?, 4, 'comment')",
+				RESTAURANT, REVIEWER);
+	}
+
+	@AfterEach
+	void cleanUp() {
+		jdbcTemplate.update("DELETE FROM reviews WHERE restaurant_id > ? OR visitor_id > ?", ID_OFFSET, ID_OFFSET);
+		jdbcTemplate.update("DELETE FROM visitors WHERE id > ?", ID_OFFSET);
+		jdbcTemplate.update("DELETE FROM restaurants WHERE id > ?", ID_OFFSET);
+	}
+
+	@Test
+	void createReview() throws Exception {
+		mockMvc.perform(post("/api/reviews")
+						.contentType(MediaType.APPLICATION_JSON)
+						.content("{\"restaurantId\":%d,\"visitorId\":%d,\"rating\":5,\"comment\":\"ok\"}".formatted(RESTAURANT, VISITOR)))
+				.andExpect(status().isOk())
+				.andExpect(statementsAtMost(1));
+	}
+
+	@Test
+	void updateReview() throws Exception {
+		mockMvc.perform(put("/api/reviews/{restaurantId}/{visitorId}", RESTAURANT, REVIEWER)
+						.contentType(MediaType.APPLICATION_JSON)
+						.content("{\"rating\":2,\"comment\":\"changed\"}"))
+				.andExpect(status().isOk())
+				.andExpect(statementsAtMost(4));
+	}
+
+	@Test
+	void deleteReview() throws Exception {
+		mockMvc.perform(delete("/api/reviews/{restaurantId}/{visitorId}", RESTAURANT, REVIEWER))
+				.andExpect(status().isOk())
+				.andExpect(statementsAtMost(4));
+	}
+
+	@Test
+	void deleteVisitor() throws Exception {
+		mockMvc.perform(delete("/api/visitors/{id}", REVIEWER))
+				.andExpect(status().isOk())
+				.andExpect(statementsAtMost(7));
+	}
+
+	@Test
+	void readRestaurant() throws Exception {
+		mockMvc.perform(get("/api/restaurants/{id}", RESTAURANT))
+				.andExpect(status().isOk())
+				.andExpect(statementsAtMost(1));
+	}
+
+	@Test
+	void ratingDistributionReadsOneRow() throws Exception {
+		mockMvc.perform(put("/api/reviews/{restaurantId}/{visitorId}", RESTAURANT, REVIEWER)
+						.contentType(MediaType.APPLICATION_JSON)
+						.content("{\"rating\":2,\"comment\":\"changed\"}"))
+				.andExpect(status().isOk());
+		mockMvc.perform(post("/api/reviews")
+						.contentType(MediaType.APPLICATION_JSON)
+						.content("{\"restaurantId\":%d,\"visitorId\":%d,\"rating\":5,\"comment\":\"ok\"}".formatted(RESTAURANT, VISITOR)))
+				.andExpect(status().isOk());
+		mockMvc.perform(get("/api/restaurants/{id}/rating-distribution", RESTAURANT))
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$.reviewCount").value(2))
+				.andExpect(jsonPath("$.stars.2").value(1))
+				.andExpect(jsonPath("$.stars.4").value(0))
+				.andExpect(jsonPath("$.stars.5").value(1))
+				.andExpect(statementsAtMost(1));
+	}
+
+	@Test
+	void readPages() throws Exception {
+		mockMvc.perform(get("/api/restaurants").param("size", "20"))
+				.andExpect(statementsAtMost(1));
+		mockMvc.perform(get("/api/visitors").param("size", "20"))
+				.andExpect(statementsAtMost(1));
+		mockMvc.perform(get("/api/reviews").param("size", "20"))
+				.andExpect(statementsAtMost(1));
+		mockMvc.perform(get("/api/reviews/sorted/desc").param("size", "20"))
+				.andExpect(statementsAtMost(2));
+	}
+
+	@Test
+	void conditionalReadsSkipDatabase() throws Exception {
+		String restaurantETag = mockMvc.perform(get("/api/restaurants/{id}", RESTAURANT))
+				.andExpect(status().isOk())
+				.andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+		mockMvc.perform(get("/api/restaurants/{id}", RESTAURANT).header(HttpHeaders.IF_NONE_MATCH, restaurantETag))
+				.andExpect(status().isNotModified())
+				.andExpect(statementsAtMost(0));
+
+		String pageETag = mockMvc.perform(get("/api/reviews").param("size", "20"))
+				.andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+		mockMvc.perform(get("/api/reviews").param("size", "20").header(HttpHeaders.IF_NONE_MATCH, pageETag))
+				.andExpect(status().isNotModified())
+				.andExpect(statementsAtMost(0));
+
+		mockMvc.perform(put("/api/reviews/{restaurantId}/{visitorId}", RESTAURANT, REVIEWER)
+						.contentType(MediaType.APPLICATION_JSON)
+						.content("{\"rating\":2,\"comment\":\"changed\"}"))
+				.andExpect(status().isOk());
+		mockMvc.perform(get("/api/restaurants/{id}", RESTAURANT).header(HttpHeaders.IF_NONE_MATCH, restaurantETag))
+				.andExpect(status().isOk())
+				.andExpect(header().exists(HttpHeaders.ETAG));
+		mockMvc.perform(get("/api/reviews").param("size", "20").header(HttpHeaders.IF_NONE_MATCH, pageETag))
+				.andExpect(status().isOk());
+	}
+}